@@ -0,0 +1,348 @@
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import javax.imageio.ImageIO;
+
+/**
+ * @author My Tran
+ * @version 1.0
+ * @description Headless runner that shares every image of a directory or file
+ *              list into share container files. Worker threads take paths from
+ *              a bounded queue, so listing a huge directory blocks instead of
+ *              running ahead of the workers. Each run writes a line per image to
+ *              jobs.csv and throughput and latency totals to summary.txt
+ */
+public class BatchSharer {
+    public int k, n; // SSS scheme values. k-1 is the polynomial degree. n is the number of shares
+    private int threads = Runtime.getRuntime().availableProcessors(); // images shared at once
+    private int queueCapacity = 2 * threads; // paths waiting for a worker
+    private SSS.Arithmetic arithmetic = SSS.Arithmetic.PRIME;
+
+    private static final Path END = Paths.get(""); // tells a worker the input is exhausted
+
+    /**
+     * Outcome of sharing one image
+     */
+    static class Job {
+        final Path input;
+        final long pixels; // 0 if the image could not be read
+        final long nanos; // time from taking the path off the queue to the last share written
+        final String error; // null on success
+
+        Job(Path input, long pixels, long nanos, String error) {
+            this.input = input;
+            this.pixels = pixels;
+            this.nanos = nanos;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Constructor for BatchSharer
+     *
+     * @param degree    polynomial degree is k-1 for scheme
+     * @param numShares number of shares produced from scheme
+     */
+    public BatchSharer(int degree, int numShares) {
+        k = degree;
+        n = numShares;
+    }
+
+    /**
+     * Set how many images are shared at once
+     *
+     * @param threads number of worker threads
+     */
+    public void SetThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Need at least one thread, got " + threads);
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Set how many paths may wait for a worker before listing the input blocks
+     *
+     * @param capacity size of the work queue
+     */
+    public void SetQueueCapacity(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Queue needs room for at least one path, got " + capacity);
+        }
+        queueCapacity = capacity;
+    }
+
+    /**
+     * Choose the field the shares are computed in
+     *
+     * @param arithmetic PRIME or BINARY
+     */
+    public void SetArithmetic(SSS.Arithmetic arithmetic) {
+        this.arithmetic = arithmetic;
+    }
+
+    /**
+     * Shares every input image. Share i of image name.ext is written to
+     * name.ext.i.sss in the output directory, for i from 1 to n
+     *
+     * @param inputs    image paths, read lazily as the queue drains
+     * @param outputDir directory for the share files and the summary
+     * @return outcome of every image in the order they finished
+     * @throws IOException          if the output directory or summary cannot be
+     *                              written
+     * @throws InterruptedException
+     */
+    public List<Job> Run(Iterator<Path> inputs, Path outputDir) throws IOException, InterruptedException {
+        Files.createDirectories(outputDir);
+        BlockingQueue<Path> queue = new ArrayBlockingQueue<>(queueCapacity);
+        List<Job> jobs = Collections.synchronizedList(new ArrayList<>());
+
+        Thread workers[] = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(() -> Work(queue, outputDir, jobs), "BatchSharer-" + i);
+            workers[i].start();
+        }
+
+        long start = System.nanoTime();
+        try {
+            while (inputs.hasNext()) {
+                queue.put(inputs.next()); // blocks while the workers are behind
+            }
+        } finally {
+            for (int i = 0; i < threads; i++) {
+                queue.put(END);
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        WriteJobs(jobs, outputDir.resolve("jobs.csv"));
+        Files.write(outputDir.resolve("summary.txt"), Summary(jobs, elapsed).getBytes(StandardCharsets.UTF_8));
+        return jobs;
+    }
+
+    /**
+     * Loop of a worker thread, taking paths until END
+     *
+     * @param queue     paths to share
+     * @param outputDir directory for the share files
+     * @param jobs      list the outcome of each image is added to
+     */
+    private void Work(BlockingQueue<Path> queue, Path outputDir, List<Job> jobs) {
+        try {
+            for (Path input = queue.take(); input != END; input = queue.take()) {
+                jobs.add(Share(input, outputDir));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Shares one image, recording failures instead of throwing so the batch
+     * carries on
+     *
+     * @param input     image to share
+     * @param outputDir directory for the share files
+     * @return
+     */
+    private Job Share(Path input, Path outputDir) {
+        long start = System.nanoTime();
+        long pixels = 0;
+        try {
+            BufferedImage image = ImageIO.read(input.toFile());
+            if (image == null) {
+                throw new IOException("Not a readable image");
+            }
+            pixels = (long) image.getWidth() * image.getHeight();
+
+            SSS secretSharing = new SSS(Planes.Standardize(image), k, n);
+            secretSharing.SetArithmetic(arithmetic);
+            secretSharing.CreateShares();
+
+            Path paths[] = new Path[n];
+            for (int i = 0; i < n; i++) {
+                paths[i] = outputDir.resolve(input.getFileName() + "." + (i + 1) + ".sss");
+            }
+            secretSharing.SaveShares(paths);
+
+            return new Job(input, pixels, System.nanoTime() - start, null);
+        } catch (IOException | RuntimeException e) {
+            return new Job(input, pixels, System.nanoTime() - start, e.toString());
+        }
+    }
+
+    /**
+     * Writes one line per image with its size, latency and error if it failed
+     *
+     * @param jobs outcome of every image
+     * @param path file to write
+     * @throws IOException
+     */
+    private static void WriteJobs(List<Job> jobs, Path path) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8))) {
+            out.println("input,pixels,milliseconds,error");
+            for (Job job : jobs) {
+                out.printf(Locale.ROOT, "\"%s\",%d,%.3f,%s%n", job.input.toString().replace("\"", "\"\""),
+                        job.pixels, job.nanos / 1e6,
+                        job.error == null ? "" : "\"" + job.error.replace("\"", "\"\"") + "\"");
+            }
+        }
+    }
+
+    /**
+     * Throughput of the whole run and latency percentiles of the images shared
+     *
+     * @param jobs    outcome of every image
+     * @param elapsed wall time of the run in nanoseconds
+     * @return
+     */
+    static String Summary(List<Job> jobs, long elapsed) {
+        long latencies[] = jobs.stream().filter(job -> job.error == null).mapToLong(job -> job.nanos).sorted()
+                .toArray();
+        long pixels = jobs.stream().filter(job -> job.error == null).mapToLong(job -> job.pixels).sum();
+        double seconds = elapsed / 1e9;
+
+        StringBuilder summary = new StringBuilder();
+        summary.append(String.format(Locale.ROOT, "images     %d shared, %d failed%n", latencies.length,
+                jobs.size() - latencies.length));
+        summary.append(String.format(Locale.ROOT, "elapsed    %.3f s%n", seconds));
+        summary.append(String.format(Locale.ROOT, "throughput %.2f images/s, %.2f megapixels/s%n",
+                latencies.length / seconds, pixels / 1e6 / seconds));
+        if (latencies.length > 0) {
+            summary.append(String.format(Locale.ROOT, "latency    p50 %.3f ms, p95 %.3f ms, p99 %.3f ms, max %.3f ms%n",
+                    Percentile(latencies, 50) / 1e6, Percentile(latencies, 95) / 1e6,
+                    Percentile(latencies, 99) / 1e6, latencies[latencies.length - 1] / 1e6));
+        }
+        return summary.toString();
+    }
+
+    /**
+     * Nearest rank percentile of sorted values
+     *
+     * @param sorted     values in ascending order, at least one
+     * @param percentile between 0 and 100
+     * @return
+     */
+    static long Percentile(long sorted[], int percentile) {
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(rank, 1) - 1];
+    }
+
+    /**
+     * Walks the images of directories and the paths listed in text files, one
+     * path per line. Directory entries are read as the queue asks for them
+     */
+    static class Inputs implements Iterator<Path> {
+        private final Iterator<Path> sources;
+        private DirectoryStream<Path> directory; // open directory being listed, if any
+        private Iterator<Path> current = Collections.emptyIterator();
+
+        Inputs(List<Path> sources) {
+            this.sources = sources.iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while (!current.hasNext()) {
+                    if (directory != null) {
+                        directory.close();
+                        directory = null;
+                    }
+                    if (!sources.hasNext()) {
+                        return false;
+                    }
+                    current = Open(sources.next());
+                }
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public Path next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+
+        /**
+         * Starts listing a directory or reads a list file
+         *
+         * @param source directory or list file
+         * @return
+         * @throws IOException
+         */
+        private Iterator<Path> Open(Path source) throws IOException {
+            if (!Files.isDirectory(source)) {
+                return Files.readAllLines(source, StandardCharsets.UTF_8).stream().map(String::trim)
+                        .filter(line -> !line.isEmpty() && !line.startsWith("#")).map(Paths::get).iterator();
+            }
+
+            directory = Files.newDirectoryStream(source, entry -> Files.isRegularFile(entry)
+                    && entry.getFileName().toString().matches("(?i).*\\.(bmp|png)"));
+            return directory.iterator();
+        }
+    }
+
+    public static void main(String args[]) throws IOException, InterruptedException {
+        int k = 2, n = 5;
+        Path output = Paths.get("shares");
+        Integer threads = null, queue = null;
+        SSS.Arithmetic arithmetic = SSS.Arithmetic.PRIME;
+        List<Path> inputs = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-k":
+                    k = Integer.parseInt(args[++i]);
+                    break;
+                case "-n":
+                    n = Integer.parseInt(args[++i]);
+                    break;
+                case "-out":
+                    output = Paths.get(args[++i]);
+                    break;
+                case "-threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "-queue":
+                    queue = Integer.parseInt(args[++i]);
+                    break;
+                case "-binary":
+                    arithmetic = SSS.Arithmetic.BINARY;
+                    break;
+                default:
+                    inputs.add(Paths.get(args[i]));
+            }
+        }
+        if (inputs.isEmpty()) {
+            System.err.println("Usage: BatchSharer [-k 2] [-n 5] [-out shares] [-threads t] [-queue q] [-binary]"
+                    + " <directory or list file>...");
+            System.exit(2);
+        }
+
+        BatchSharer sharer = new BatchSharer(k, n);
+        if (threads != null) {
+            sharer.SetThreads(threads);
+            sharer.SetQueueCapacity(2 * threads);
+        }
+        if (queue != null) {
+            sharer.SetQueueCapacity(queue);
+        }
+        sharer.SetArithmetic(arithmetic);
+
+        sharer.Run(new Inputs(inputs), output);
+        System.out.print(new String(Files.readAllBytes(output.resolve("summary.txt")), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * @author My Tran
+ * @version 1.0
+ * @description Arithmetic in GF(2^8) with the polynomial x^8 + x^4 + x^3 + x +
+ *              1 backed by precomputed tables. Every byte value is a field
+ *              element, so bytes can be shared without clamping. Addition and
+ *              subtraction are both XOR
+ */
+public class BinaryField {
+    public static final int ORDER = 256; // number of field elements, passed where a prime q is expected
+    public static final int POLYNOMIAL = 0x11B; // reduction polynomial
+    public static final int GENERATOR = 3; // generator of the multiplicative group
+
+    private static final byte mulTable[] = new byte[1 << 16]; // a * b at index a << 8 | b
+    private static final int invTable[] = new int[ORDER]; // inverse of a, 0 for a = 0
+    private static final int expTable[] = new int[2 * (ORDER - 1)]; // g^i for i in 0 to 2 * 255
+    private static final int logTable[] = new int[ORDER]; // i with g^i = a, unused for a = 0
+
+    static {
+        for (int i = 0, power = 1; i < expTable.length; i++) {
+            expTable[i] = power;
+            if (i < ORDER - 1) {
+                logTable[power] = i;
+            }
+            // multiply by x + 1 and reduce
+            power ^= power << 1;
+            if ((power & 0x100) != 0) {
+                power ^= POLYNOMIAL;
+            }
+        }
+
+        for (int a = 1; a < ORDER; a++) {
+            invTable[a] = expTable[(ORDER - 1 - logTable[a]) % (ORDER - 1)];
+            for (int b = 1; b < ORDER; b++) {
+                mulTable[a << 8 | b] = (byte) expTable[logTable[a] + logTable[b]];
+            }
+        }
+    }
+
+    /**
+     * a * b in GF(2^8)
+     *
+     * @param a
+     * @param b
+     * @return
+     */
+    public static int Mul(int a, int b) {
+        return mulTable[a << 8 | b] & 0xFF;
+    }
+
+    /**
+     * Multiplicative inverse of a non-zero field element
+     *
+     * @param a
+     * @return
+     */
+    public static int Inv(int a) {
+        if (a == 0) {
+            throw new ArithmeticException("0 has no inverse in GF(2^8)");
+        }
+        return invTable[a];
+    }
+
+    /**
+     * g^i
+     *
+     * @param i exponent between 0 and 2 * 255
+     * @return
+     */
+    public static int Exp(int i) {
+        return expTable[i];
+    }
+
+    /**
+     * Discrete logarithm of a non-zero field element to the base g
+     *
+     * @param a
+     * @return
+     */
+    public static int Log(int a) {
+        return logTable[a];
+    }
+}
@@ -0,0 +1,297 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * @author My Tran
+ * @version 1.0
+ * @description Shamir's secret sharing of arbitrary byte blobs, such as keys,
+ *              over the Mersenne prime fields 2^31 - 1 and 2^61 - 1. The secret
+ *              is packed into elements of 3 or 7 bytes and every element gets a
+ *              polynomial of degree k - 1 of its own. Keys and coefficients
+ *              follow SSS: seeded runs draw keys from Random and coefficients
+ *              from a SplitMix64 counter, unseeded runs draw both from
+ *              ChaCha20 with one stream per chunk. Chunks of elements run in
+ *              parallel on the pool if there is one
+ */
+public class BlobSSS {
+    static final int CHUNK_ELEMENTS = 1 << 14; // elements handled by one task and one ChaCha20 stream
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class,
+            ByteOrder.LITTLE_ENDIAN);
+
+    public final MersenneField field;
+    public final int k, n; // threshold and number of shares
+    private ForkJoinPool pool; // null to run on the calling thread
+    private boolean seeded = false;
+    private long seed;
+
+    /**
+     * Constructor for BlobSSS
+     *
+     * @param field     MersenneField.P31 or MersenneField.P61
+     * @param degree    threshold k, shares needed to reconstruct
+     * @param numShares number of shares n
+     */
+    public BlobSSS(MersenneField field, int degree, int numShares) {
+        if (degree < 2 || numShares < degree) {
+            throw new IllegalArgumentException("Need 2 <= k <= n, got k = " + degree + ", n = " + numShares);
+        }
+        this.field = field;
+        k = degree;
+        n = numShares;
+    }
+
+    /**
+     * Run sharing and reconstruction on a pool
+     *
+     * @param pool pool to run on, null to run on the calling thread
+     */
+    public void SetParallelism(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Use a fixed seed so the same blob gives the same shares
+     *
+     * @param seed
+     */
+    public void SetSeed(long seed) {
+        this.seed = seed;
+        seeded = true;
+    }
+
+    /**
+     * Splits a blob into n shares
+     *
+     * @param secret bytes to share
+     * @return
+     */
+    public BlobShare[] CreateShares(byte secret[]) {
+        int elementCount = (int) ((secret.length + (long) field.bytesPerElement - 1) / field.bytesPerElement);
+
+        // seeded runs take the counter seed after the keys, as SSS does with its stream seed
+        Random rng;
+        ChaCha20Random drbg = null;
+        long counterSeed = 0;
+        if (seeded) {
+            rng = new Random(seed);
+            counterSeed = rng.nextLong();
+        } else {
+            drbg = ChaCha20Random.FromSecureRandom();
+            rng = drbg;
+        }
+        long keys[] = DrawKeys(rng, n);
+
+        BlobShare shares[] = new BlobShare[n];
+        long elements[][] = new long[n][];
+        for (int i = 0; i < n; i++) {
+            shares[i] = new BlobShare();
+            shares[i].bits = field.bits;
+            shares[i].k = k;
+            shares[i].n = n;
+            shares[i].keyX = keys[i];
+            shares[i].length = secret.length;
+            shares[i].elements = elements[i] = new long[elementCount];
+        }
+
+        ChaCha20Random streams = drbg;
+        long coefficientSeed = counterSeed;
+        SSS.RunTasks(pool, (elementCount + CHUNK_ELEMENTS - 1) / CHUNK_ELEMENTS, chunk -> {
+            int from = chunk * CHUNK_ELEMENTS, to = Math.min(from + CHUNK_ELEMENTS, elementCount);
+            long coefficients[] = new long[(to - from) * (k - 1)];
+            if (streams == null) {
+                for (int c = 0; c < coefficients.length; c++) {
+                    coefficients[c] = CounterCoefficient(coefficientSeed, (long) from * (k - 1) + c);
+                }
+            } else {
+                ChaCha20Random stream = streams.Stream(chunk + 1);
+                for (int c = 0; c < coefficients.length; c++) {
+                    coefficients[c] = field.Reduce(field.bits == 61 ? stream.nextLong() >>> 3
+                            : stream.nextInt() >>> 1);
+                }
+            }
+            if (field.bits == 61) {
+                Evaluate61(secret, from, to, coefficients, keys, elements);
+            } else {
+                Evaluate31(secret, from, to, coefficients, keys, elements);
+            }
+        });
+        return shares;
+    }
+
+    /**
+     * Evaluates the polynomials of a chunk mod 2^61 - 1 by Horner's rule
+     *
+     * @param secret       bytes of the secret
+     * @param from         first element of the chunk
+     * @param to           element after the last one of the chunk
+     * @param coefficients k - 1 coefficients per element, lowest degree first
+     * @param keys         x key of each share
+     * @param elements     elements of each share
+     */
+    private void Evaluate61(byte secret[], int from, int to, long coefficients[], long keys[], long elements[][]) {
+        int degree = k - 1;
+        for (int e = from, c = 0; e < to; e++, c += degree) {
+            long s = Element(secret, e);
+            for (int i = 0; i < keys.length; i++) {
+                long x = keys[i], y = coefficients[c + degree - 1];
+                for (int j = degree - 2; j >= 0; j--) {
+                    y = MersenneField.Mul61(y, x) + coefficients[c + j];
+                    y = y >= MersenneField.M61 ? y - MersenneField.M61 : y;
+                }
+                y = MersenneField.Mul61(y, x) + s;
+                elements[i][e] = y >= MersenneField.M61 ? y - MersenneField.M61 : y;
+            }
+        }
+    }
+
+    /**
+     * Evaluates the polynomials of a chunk mod 2^31 - 1 by Horner's rule
+     *
+     * @param secret       bytes of the secret
+     * @param from         first element of the chunk
+     * @param to           element after the last one of the chunk
+     * @param coefficients k - 1 coefficients per element, lowest degree first
+     * @param keys         x key of each share
+     * @param elements     elements of each share
+     */
+    private void Evaluate31(byte secret[], int from, int to, long coefficients[], long keys[], long elements[][]) {
+        int degree = k - 1;
+        for (int e = from, c = 0; e < to; e++, c += degree) {
+            long s = Element(secret, e);
+            for (int i = 0; i < keys.length; i++) {
+                long x = keys[i], y = coefficients[c + degree - 1];
+                for (int j = degree - 2; j >= 0; j--) {
+                    y = MersenneField.Mul31(y, x) + coefficients[c + j];
+                    y = y >= MersenneField.M31 ? y - MersenneField.M31 : y;
+                }
+                y = MersenneField.Mul31(y, x) + s;
+                elements[i][e] = y >= MersenneField.M31 ? y - MersenneField.M31 : y;
+            }
+        }
+    }
+
+    /**
+     * Reconstructs the blob from the first k of the given shares
+     *
+     * @param selectedShares at least k shares of the same blob
+     * @return
+     */
+    public byte[] Reconstruct(BlobShare selectedShares[]) {
+        if (selectedShares.length < k) {
+            throw new IllegalArgumentException("At least " + k + " shares are needed to reconstruct, got "
+                    + selectedShares.length);
+        }
+
+        BlobShare first = selectedShares[0];
+        long keys[] = new long[k];
+        long elements[][] = new long[k][];
+        for (int i = 0; i < k; i++) {
+            BlobShare share = selectedShares[i];
+            if (share.bits != field.bits || share.length != first.length
+                    || share.elements.length != first.elements.length) {
+                throw new IllegalArgumentException("Blob shares do not come from the same field and secret");
+            }
+            keys[i] = share.keyX;
+            elements[i] = share.elements;
+        }
+        long weights[] = field.Weights(keys);
+
+        byte secret[] = new byte[Math.toIntExact(first.length)];
+        int elementCount = first.elements.length;
+        SSS.RunTasks(pool, (elementCount + CHUNK_ELEMENTS - 1) / CHUNK_ELEMENTS, chunk -> {
+            int from = chunk * CHUNK_ELEMENTS, to = Math.min(from + CHUNK_ELEMENTS, elementCount);
+            for (int e = from; e < to; e++) {
+                long sum = 0;
+                for (int s = 0; s < weights.length; s++) {
+                    sum = field.Add(sum, field.Mul(weights[s], elements[s][e]));
+                }
+                PutElement(secret, e, sum, to * field.bytesPerElement);
+            }
+        });
+        return secret;
+    }
+
+    /**
+     * Draws distinct non-zero keys below the prime
+     *
+     * @param rng   random number generator to draw from
+     * @param count number of keys
+     * @return
+     */
+    long[] DrawKeys(Random rng, int count) {
+        long keys[] = new long[count];
+        Set<Long> used = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            long key;
+            do {
+                key = rng.nextLong() >>> (64 - field.bits);
+            } while (key == 0 || key == field.prime || !used.add(key));
+            keys[i] = key;
+        }
+        return keys;
+    }
+
+    /**
+     * Coefficient number index of the blob from a counter. The index is mixed
+     * with the SplitMix64 finalizer as in SSS.CounterCoefficient, and the top
+     * bits are folded into the field
+     *
+     * @param seed  key of the blob's coefficients
+     * @param index element * (k - 1) + coefficient
+     * @return
+     */
+    long CounterCoefficient(long seed, long index) {
+        long z = seed + (index + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z ^= z >>> 31;
+        return field.Reduce(z >>> (64 - field.bits));
+    }
+
+    /**
+     * Packed element of the secret, its bytes in little endian order. The last
+     * element is padded with zeros
+     *
+     * @param secret
+     * @param element
+     * @return
+     */
+    private long Element(byte secret[], int element) {
+        int width = field.bytesPerElement, offset = element * width;
+        if (offset + 8 <= secret.length) {
+            return (long) LONGS.get(secret, offset) & ((1L << (8 * width)) - 1);
+        }
+
+        long value = 0;
+        for (int b = Math.min(width, secret.length - offset) - 1; b >= 0; b--) {
+            value = value << 8 | (secret[offset + b] & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * Writes a reconstructed element into the secret. Elements are written in
+     * ascending order, so a whole long can be stored when the bytes past the
+     * element are written again afterwards
+     *
+     * @param secret
+     * @param element
+     * @param value
+     * @param limit   byte offset after the chunk, which other tasks write from
+     */
+    private void PutElement(byte secret[], int element, long value, int limit) {
+        int width = field.bytesPerElement, offset = element * width;
+        if (offset + 8 <= Math.min(limit, secret.length)) {
+            LONGS.set(secret, offset, value);
+            return;
+        }
+        for (int b = 0; b < width && offset + b < secret.length; b++, value >>>= 8) {
+            secret[offset + b] = (byte) value;
+        }
+    }
+}
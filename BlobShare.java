@@ -0,0 +1,105 @@
+import java.nio.ByteBuffer;
+
+/**
+ * @author My Tran
+ * @version 1.0
+ * @description Share of a byte blob created by BlobSSS: an x key and one field
+ *              element of a Mersenne prime field per packed group of secret
+ *              bytes. Serialized, all big endian:
+ *
+ *              <pre>
+ *  0  int   magic "SSSB"          12  int   n
+ *  4  short version               16  long  x key
+ *  6  short bits e of 2^e - 1     24  long  length of the secret in bytes
+ *  8  int   k                     32        elements, 4 bytes each for
+ *                                           2^31 - 1 and 8 for 2^61 - 1
+ *              </pre>
+ */
+public class BlobShare {
+    static final int MAGIC = 0x53535342; // "SSSB"
+    static final short VERSION = 1;
+    static final int HEADER_BYTES = 32;
+
+    public int bits; // exponent of the field's prime 2^bits - 1
+    public int k, n; // scheme the share belongs to
+    public long keyX; // x key of the share
+    public long length; // bytes of the secret
+    public long elements[]; // y value of every packed group of secret bytes
+
+    /**
+     * Serializes the share
+     *
+     * @return
+     */
+    public byte[] ToBytes() {
+        int elementBytes = bits == 61 ? 8 : 4;
+        ByteBuffer out = ByteBuffer.allocate(Math.toIntExact(HEADER_BYTES + (long) elements.length * elementBytes));
+        out.putInt(MAGIC).putShort(VERSION).putShort((short) bits).putInt(k).putInt(n).putLong(keyX).putLong(length);
+        if (bits == 61) {
+            out.asLongBuffer().put(elements);
+        } else {
+            for (long element : elements) {
+                out.putInt((int) element);
+            }
+        }
+        return out.array();
+    }
+
+    /**
+     * Reads a share written by ToBytes
+     *
+     * @param bytes
+     * @return
+     * @throws IllegalArgumentException if the bytes are not a blob share
+     */
+    public static BlobShare FromBytes(byte bytes[]) {
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        if (bytes.length < HEADER_BYTES || in.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a blob share");
+        }
+        if (in.getShort() != VERSION) {
+            throw new IllegalArgumentException("Unsupported blob share version " + in.getShort(4));
+        }
+
+        BlobShare share = new BlobShare();
+        share.bits = in.getShort();
+        MersenneField field = MersenneField.For(share.bits);
+        share.k = in.getInt();
+        share.n = in.getInt();
+        share.keyX = in.getLong();
+        share.length = in.getLong();
+        if (share.keyX < 1 || share.keyX >= field.prime) {
+            throw new IllegalArgumentException("Blob share key " + share.keyX + " is not in [1, " + (field.prime - 1)
+                    + "]");
+        }
+
+        int elementBytes = share.bits == 61 ? 8 : 4;
+        long count = share.length < 0 ? -1 : (share.length + field.bytesPerElement - 1) / field.bytesPerElement;
+        long countBytes;
+        try {
+            countBytes = count < 0 ? -1 : Math.multiplyExact(count, elementBytes);
+        } catch (ArithmeticException e) {
+            countBytes = -1;
+        }
+        if (countBytes != bytes.length - HEADER_BYTES) {
+            throw new IllegalArgumentException("Blob share of " + share.length + " secret bytes has "
+                    + (bytes.length - HEADER_BYTES) + " bytes of elements");
+        }
+
+        share.elements = new long[(int) count];
+        if (share.bits == 61) {
+            in.asLongBuffer().get(share.elements);
+        } else {
+            for (int i = 0; i < share.elements.length; i++) {
+                share.elements[i] = in.getInt() & 0xFFFFFFFFL;
+            }
+        }
+        for (int i = 0; i < share.elements.length; i++) {
+            // a 61 bit element read as a signed long is negative when its top bits are set
+            if (share.elements[i] < 0 || share.elements[i] >= field.prime) {
+                throw new IllegalArgumentException("Blob share element " + i + " is not below " + field.prime);
+            }
+        }
+        return share;
+    }
+}
@@ -0,0 +1,239 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.Arrays;
+
+/**
+ * @author My Tran
+ * @version 1.0
+ * @description Row access to uncompressed 24 and 32 bit BMP files so images can
+ *              be processed a strip of rows at a time without decoding the
+ *              whole file. Rows are numbered top to bottom whatever order the
+ *              file stores them in
+ */
+public class BmpFile implements Closeable {
+    private final FileChannel channel;
+    public final byte header[]; // every byte before the pixel data
+    public final int width, height;
+    public final int bytesPerPixel;
+    public final boolean sampleBytes[]; // bytes of a pixel holding a color or alpha sample, not padding
+    public final int rowBytes; // bytes of a row including padding to 4 bytes
+    private final boolean bottomUp; // rows stored from the bottom of the image up
+    private final long pixelOffset; // file position of the pixel data
+
+    private BmpFile(FileChannel channel, byte header[]) throws IOException {
+        this.channel = channel;
+        this.header = header;
+
+        ByteBuffer fields = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
+        if (header.length < 54 || fields.getShort(0) != 0x4D42) {
+            throw new IOException("Not a BMP file");
+        }
+
+        int bitsPerPixel = fields.getShort(28);
+        int compression = fields.getInt(30);
+        if ((bitsPerPixel != 24 && bitsPerPixel != 32) || (compression != 0 && compression != 3)) {
+            throw new IOException("Unsupported BMP: " + bitsPerPixel + " bits per pixel, compression "
+                    + compression);
+        }
+
+        int storedHeight = fields.getInt(22);
+        width = fields.getInt(18);
+        height = Math.abs(storedHeight);
+        bottomUp = storedHeight > 0;
+        bytesPerPixel = bitsPerPixel / 8;
+        rowBytes = (width * bytesPerPixel + 3) & ~3;
+        pixelOffset = fields.getInt(10);
+        sampleBytes = SampleBytes(fields, bytesPerPixel, compression);
+    }
+
+    /**
+     * Finds the bytes of a pixel that hold samples. A 32 bit pixel without bit
+     * fields, or whose bit fields have no alpha mask, has an unused 4th byte
+     *
+     * @param fields        header bytes
+     * @param bytesPerPixel
+     * @param compression   0 for plain pixels, 3 for bit fields
+     * @return
+     */
+    private static boolean[] SampleBytes(ByteBuffer fields, int bytesPerPixel, int compression) {
+        boolean samples[] = new boolean[bytesPerPixel];
+        if (bytesPerPixel == 3) {
+            Arrays.fill(samples, true);
+            return samples;
+        }
+
+        int used = 0x00FFFFFF;
+        if (compression == 3 && fields.capacity() >= 66) {
+            // red, green and blue masks follow the 40 byte info header, alpha comes
+            // after them in info headers of 56 bytes and more
+            used = fields.getInt(54) | fields.getInt(58) | fields.getInt(62);
+            if (fields.getInt(14) >= 56 && fields.capacity() >= 70) {
+                used |= fields.getInt(66);
+            }
+        }
+        for (int b = 0; b < bytesPerPixel; b++) {
+            samples[b] = (used >>> (8 * b) & 0xFF) != 0;
+        }
+        return samples;
+    }
+
+    /**
+     * Opens a BMP file for reading rows
+     *
+     * @param path file to open
+     * @return
+     * @throws IOException if the file is not an uncompressed 24 or 32 bit BMP
+     */
+    public static BmpFile Open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            // the pixel data offset is at byte 10 of the file header
+            ByteBuffer start = ByteBuffer.allocate(14).order(ByteOrder.LITTLE_ENDIAN);
+            ReadFully(channel, start, 0);
+            int pixelOffset = start.getInt(10);
+            if (pixelOffset < 54 || pixelOffset > channel.size()) {
+                throw new IOException("Not a BMP file: " + path);
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(pixelOffset);
+            ReadFully(channel, header, 0);
+            return new BmpFile(channel, header.array());
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Creates a BMP file with the same header, and so the same size and layout, as
+     * another one. Rows that are never written read back as zeros
+     *
+     * @param path   file to create, replaced if it exists
+     * @param layout file to copy the header of
+     * @return
+     * @throws IOException
+     */
+    public static BmpFile Create(Path path, BmpFile layout) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.READ, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            ByteBuffer header = ByteBuffer.wrap(layout.header);
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+
+            // extend the file to its full size so rows can be written in any order
+            BmpFile created = new BmpFile(channel, layout.header.clone());
+            channel.write(ByteBuffer.allocate(1), created.pixelOffset + (long) created.height * created.rowBytes - 1);
+            return created;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Offset of a row inside a buffer filled by ReadRows or passed to WriteRows.
+     * The buffer keeps the file's row order, so bottom up files have the rows
+     * reversed
+     *
+     * @param row  row within the strip, 0 for the first row of the strip
+     * @param rows number of rows in the strip
+     * @return
+     */
+    public int RowOffset(int row, int rows) {
+        return (bottomUp ? rows - 1 - row : row) * rowBytes;
+    }
+
+    /**
+     * Reads a strip of consecutive rows in a single read
+     *
+     * @param firstRow top row of the strip
+     * @param rows     number of rows
+     * @param buffer   array of at least rows * rowBytes bytes
+     * @throws IOException
+     */
+    public void ReadRows(int firstRow, int rows, byte buffer[]) throws IOException {
+        ReadFully(channel, ByteBuffer.wrap(buffer, 0, rows * rowBytes), StripPosition(firstRow, rows));
+    }
+
+    /**
+     * Reads consecutive rows in the order the file stores them, for work that
+     * does not care where a row sits in the image
+     *
+     * @param firstStoredRow index of the first row in file order
+     * @param rows           number of rows
+     * @param buffer         array of at least rows * rowBytes bytes
+     * @throws IOException
+     */
+    public void ReadStoredRows(int firstStoredRow, int rows, byte buffer[]) throws IOException {
+        ReadFully(channel, ByteBuffer.wrap(buffer, 0, rows * rowBytes),
+                pixelOffset + (long) firstStoredRow * rowBytes);
+    }
+
+    /**
+     * Checks if another file has the same size and pixel layout, so its pixel
+     * data lines up byte for byte with this one
+     *
+     * @param other file to compare with
+     * @return
+     */
+    public boolean SameLayout(BmpFile other) {
+        return width == other.width && height == other.height && bytesPerPixel == other.bytesPerPixel
+                && bottomUp == other.bottomUp;
+    }
+
+    /**
+     * Writes a strip of consecutive rows in a single write
+     *
+     * @param firstRow top row of the strip
+     * @param rows     number of rows
+     * @param buffer   rows laid out as described by RowOffset
+     * @throws IOException
+     */
+    public void WriteRows(int firstRow, int rows, byte buffer[]) throws IOException {
+        ByteBuffer strip = ByteBuffer.wrap(buffer, 0, rows * rowBytes);
+        long position = StripPosition(firstRow, rows);
+        while (strip.hasRemaining()) {
+            position += channel.write(strip, position);
+        }
+    }
+
+    /**
+     * File position of the first byte of a strip
+     *
+     * @param firstRow top row of the strip
+     * @param rows     number of rows
+     * @return
+     */
+    private long StripPosition(int firstRow, int rows) {
+        int firstStoredRow = bottomUp ? height - firstRow - rows : firstRow;
+        return pixelOffset + (long) firstStoredRow * rowBytes;
+    }
+
+    /**
+     * Fills a buffer from a position, failing if the file ends first
+     *
+     * @param channel
+     * @param buffer
+     * @param position
+     * @throws IOException
+     */
+    private static void ReadFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("BMP file ends before its pixel data does");
+            }
+            position += read;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
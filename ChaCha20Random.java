@@ -0,0 +1,225 @@
+import java.security.SecureRandom;
+
+/**
+ * @author My Tran
+ * @version 1.0
+ * @description Deterministic random bit generator running the ChaCha20 block
+ *              function in counter mode. The 256 bit key comes from SecureRandom
+ *              once and every stream number gives an independent keystream of the
+ *              same key, so each thread or band draws from its own stream without
+ *              sharing state. An instance is not thread safe, use Stream to get
+ *              one per thread
+ */
+public class ChaCha20Random extends java.util.Random {
+    private static final long serialVersionUID = 1L;
+    private static final int ROUNDS = 20;
+    private static final int SIGMA[] = { 0x61707865, 0x3320646e, 0x79622d32, 0x6b206574 }; // "expand 32-byte k"
+
+    private final int key[]; // 8 words of the key
+    private final long stream; // nonce words of the state
+    private long counter; // next block of the keystream
+    private final int state[] = new int[16]; // input of the block function
+    private final int block[] = new int[16]; // keystream words not handed out yet
+    private int used = 16; // words of block already handed out
+    private final int words[] = new int[16]; // block last computed by WordAt
+    private long wordsStream, wordsCounter = -1; // position of words
+
+    /**
+     * Constructor for ChaCha20Random
+     *
+     * @param key    256 bit key as 8 little endian words
+     * @param stream number of the keystream
+     */
+    public ChaCha20Random(int key[], long stream) {
+        if (key.length != 8) {
+            throw new IllegalArgumentException("ChaCha20 needs a 256 bit key, got " + 32 * key.length + " bits");
+        }
+        this.key = key.clone();
+        this.stream = stream;
+    }
+
+    /**
+     * Generator with a fresh key from SecureRandom on stream 0
+     *
+     * @return
+     */
+    public static ChaCha20Random FromSecureRandom() {
+        SecureRandom secure = new SecureRandom();
+        int key[] = new int[8];
+        for (int i = 0; i < key.length; i++) {
+            key[i] = secure.nextInt();
+        }
+        return new ChaCha20Random(key, 0);
+    }
+
+    /**
+     * Another keystream of the same key, starting at its first block
+     *
+     * @param number stream number, different from the ones already in use
+     * @return
+     */
+    public ChaCha20Random Stream(long number) {
+        return new ChaCha20Random(key, number);
+    }
+
+    /**
+     * Computes one 64 byte block of the keystream
+     *
+     * @param key     8 key words
+     * @param counter block number
+     * @param stream  stream number
+     * @param state   16 words of scratch space for the input
+     * @param out     16 words receiving the block
+     */
+    static void Block(int key[], long counter, long stream, int state[], int out[]) {
+        state[0] = SIGMA[0];
+        state[1] = SIGMA[1];
+        state[2] = SIGMA[2];
+        state[3] = SIGMA[3];
+        System.arraycopy(key, 0, state, 4, 8);
+        state[12] = (int) counter;
+        state[13] = (int) (counter >>> 32);
+        state[14] = (int) stream;
+        state[15] = (int) (stream >>> 32);
+
+        int x0 = state[0], x1 = state[1], x2 = state[2], x3 = state[3];
+        int x4 = state[4], x5 = state[5], x6 = state[6], x7 = state[7];
+        int x8 = state[8], x9 = state[9], x10 = state[10], x11 = state[11];
+        int x12 = state[12], x13 = state[13], x14 = state[14], x15 = state[15];
+
+        for (int round = 0; round < ROUNDS; round += 2) {
+            // column rounds
+            x0 += x4; x12 = Integer.rotateLeft(x12 ^ x0, 16); x8 += x12; x4 = Integer.rotateLeft(x4 ^ x8, 12);
+            x0 += x4; x12 = Integer.rotateLeft(x12 ^ x0, 8); x8 += x12; x4 = Integer.rotateLeft(x4 ^ x8, 7);
+            x1 += x5; x13 = Integer.rotateLeft(x13 ^ x1, 16); x9 += x13; x5 = Integer.rotateLeft(x5 ^ x9, 12);
+            x1 += x5; x13 = Integer.rotateLeft(x13 ^ x1, 8); x9 += x13; x5 = Integer.rotateLeft(x5 ^ x9, 7);
+            x2 += x6; x14 = Integer.rotateLeft(x14 ^ x2, 16); x10 += x14; x6 = Integer.rotateLeft(x6 ^ x10, 12);
+            x2 += x6; x14 = Integer.rotateLeft(x14 ^ x2, 8); x10 += x14; x6 = Integer.rotateLeft(x6 ^ x10, 7);
+            x3 += x7; x15 = Integer.rotateLeft(x15 ^ x3, 16); x11 += x15; x7 = Integer.rotateLeft(x7 ^ x11, 12);
+            x3 += x7; x15 = Integer.rotateLeft(x15 ^ x3, 8); x11 += x15; x7 = Integer.rotateLeft(x7 ^ x11, 7);
+            // diagonal rounds
+            x0 += x5; x15 = Integer.rotateLeft(x15 ^ x0, 16); x10 += x15; x5 = Integer.rotateLeft(x5 ^ x10, 12);
+            x0 += x5; x15 = Integer.rotateLeft(x15 ^ x0, 8); x10 += x15; x5 = Integer.rotateLeft(x5 ^ x10, 7);
+            x1 += x6; x12 = Integer.rotateLeft(x12 ^ x1, 16); x11 += x12; x6 = Integer.rotateLeft(x6 ^ x11, 12);
+            x1 += x6; x12 = Integer.rotateLeft(x12 ^ x1, 8); x11 += x12; x6 = Integer.rotateLeft(x6 ^ x11, 7);
+            x2 += x7; x13 = Integer.rotateLeft(x13 ^ x2, 16); x8 += x13; x7 = Integer.rotateLeft(x7 ^ x8, 12);
+            x2 += x7; x13 = Integer.rotateLeft(x13 ^ x2, 8); x8 += x13; x7 = Integer.rotateLeft(x7 ^ x8, 7);
+            x3 += x4; x14 = Integer.rotateLeft(x14 ^ x3, 16); x9 += x14; x4 = Integer.rotateLeft(x4 ^ x9, 12);
+            x3 += x4; x14 = Integer.rotateLeft(x14 ^ x3, 8); x9 += x14; x4 = Integer.rotateLeft(x4 ^ x9, 7);
+        }
+
+        out[0] = x0 + state[0];
+        out[1] = x1 + state[1];
+        out[2] = x2 + state[2];
+        out[3] = x3 + state[3];
+        out[4] = x4 + state[4];
+        out[5] = x5 + state[5];
+        out[6] = x6 + state[6];
+        out[7] = x7 + state[7];
+        out[8] = x8 + state[8];
+        out[9] = x9 + state[9];
+        out[10] = x10 + state[10];
+        out[11] = x11 + state[11];
+        out[12] = x12 + state[12];
+        out[13] = x13 + state[13];
+        out[14] = x14 + state[14];
+        out[15] = x15 + state[15];
+    }
+
+    /**
+     * Word of any keystream of the key at a given position, for values made in
+     * any order. The last block computed here is kept, so reading the words of a
+     * block in a row costs one block function. The generator's own position does
+     * not move
+     *
+     * @param stream   stream number
+     * @param position word of the stream, word position % 16 of block position
+     *                 / 16
+     * @return
+     */
+    public int WordAt(long stream, long position) {
+        long counter = position >>> 4;
+        if (counter != wordsCounter || stream != wordsStream) {
+            Block(key, counter, stream, state, words);
+            wordsStream = stream;
+            wordsCounter = counter;
+        }
+        return words[(int) position & 15];
+    }
+
+    /**
+     * Next 32 bits of the keystream
+     *
+     * @return
+     */
+    private int NextWord() {
+        if (used == 16) {
+            Block(key, counter++, stream, state, block);
+            used = 0;
+        }
+        return block[used++];
+    }
+
+    @Override
+    protected int next(int bits) {
+        return NextWord() >>> (32 - bits);
+    }
+
+    @Override
+    public int nextInt() {
+        return NextWord();
+    }
+
+    @Override
+    public long nextLong() {
+        return (long) NextWord() << 32 | (NextWord() & 0xFFFFFFFFL);
+    }
+
+    @Override
+    public void nextBytes(byte bytes[]) {
+        for (int i = 0; i < bytes.length;) {
+            for (int word = NextWord(), b = 0; b < 4 && i < bytes.length; b++, word >>>= 8) {
+                bytes[i++] = (byte) word;
+            }
+        }
+    }
+
+    /**
+     * Uniform element of [low, low + count) from one 32 bit word. The word is
+     * scaled by a multiply and shift instead of rejecting values, which is off
+     * from uniform by at most count / 2^32
+     *
+     * @param low   smallest element
+     * @param count number of elements
+     * @return
+     */
+    public int NextElement(int low, int count) {
+        return low + (int) (((NextWord() & 0xFFFFFFFFL) * count) >>> 32);
+    }
+
+    /**
+     * Fills a range of bytes with elements of [low, low + count), one word each,
+     * a whole keystream block at a time
+     *
+     * @param out   array to fill
+     * @param from  first index to fill
+     * @param to    index after the last one to fill
+     * @param low   smallest element
+     * @param count number of elements, at most 256 - low
+     */
+    public void FillElements(byte out[], int from, int to, int low, int count) {
+        int i = from;
+        while (i < to && used < 16) {
+            out[i++] = (byte) NextElement(low, count);
+        }
+        for (; i + 16 <= to; i += 16) {
+            Block(key, counter++, stream, state, block);
+            for (int w = 0; w < 16; w++) {
+                out[i + w] = (byte) (low + (int) (((block[w] & 0xFFFFFFFFL) * count) >>> 32));
+            }
+        }
+        while (i < to) {
+            out[i++] = (byte) NextElement(low, count);
+        }
+    }
+}
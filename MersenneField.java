@@ -0,0 +1,173 @@
+/**
+ * @author My Tran
+ * @version 1.0
+ * @description Arithmetic modulo the Mersenne primes 2^31 - 1 and 2^61 - 1 on
+ *              primitive longs. A product is folded into the field by adding
+ *              its bits above the exponent to the bits below it, since 2^e is 1
+ *              mod 2^e - 1, so no division or BigInteger is needed. Elements
+ *              pack 3 or 7 bytes of a secret
+ */
+public final class MersenneField {
+    static final long M31 = (1L << 31) - 1;
+    static final long M61 = (1L << 61) - 1;
+    public static final MersenneField P31 = new MersenneField(31);
+    public static final MersenneField P61 = new MersenneField(61);
+
+    public final int bits; // exponent e of the prime 2^e - 1
+    public final long prime; // 2^e - 1
+    public final int bytesPerElement; // whole bytes of a secret that fit in an element
+
+    private MersenneField(int bits) {
+        this.bits = bits;
+        prime = (1L << bits) - 1;
+        bytesPerElement = (bits - 1) / 8;
+    }
+
+    /**
+     * Field of a Mersenne prime
+     *
+     * @param bits 31 or 61
+     * @return
+     */
+    public static MersenneField For(int bits) {
+        if (bits == 31) {
+            return P31;
+        }
+        if (bits == 61) {
+            return P61;
+        }
+        throw new IllegalArgumentException("Only 2^31 - 1 and 2^61 - 1 are supported, got 2^" + bits + " - 1");
+    }
+
+    /**
+     * Reduces a non-negative long into the field
+     *
+     * @param x
+     * @return x mod p
+     */
+    public long Reduce(long x) {
+        x = (x & prime) + (x >>> bits);
+        x = (x & prime) + (x >>> bits);
+        return x >= prime ? x - prime : x;
+    }
+
+    public long Add(long a, long b) {
+        long sum = a + b;
+        return sum >= prime ? sum - prime : sum;
+    }
+
+    public long Sub(long a, long b) {
+        long difference = a - b;
+        return difference < 0 ? difference + prime : difference;
+    }
+
+    /**
+     * Product of two elements
+     *
+     * @param a element below p
+     * @param b element below p
+     * @return a * b mod p
+     */
+    public long Mul(long a, long b) {
+        return bits == 61 ? Mul61(a, b) : Mul31(a, b);
+    }
+
+    /**
+     * Product mod 2^61 - 1. The 122 bit product is split at bit 61 with the high
+     * half of the multiply, and the two parts are added
+     *
+     * @param a element below 2^61 - 1
+     * @param b element below 2^61 - 1
+     * @return
+     */
+    static long Mul61(long a, long b) {
+        long high = Math.multiplyHigh(a, b), low = a * b;
+        long sum = (high << 3 | low >>> 61) + (low & M61); // below 2^62
+        sum = (sum & M61) + (sum >>> 61);
+        return sum >= M61 ? sum - M61 : sum;
+    }
+
+    /**
+     * Product mod 2^31 - 1, which fits in a long before folding
+     *
+     * @param a element below 2^31 - 1
+     * @param b element below 2^31 - 1
+     * @return
+     */
+    static long Mul31(long a, long b) {
+        long product = a * b;
+        long sum = (product & M31) + (product >>> 31); // below 2^32
+        sum = (sum & M31) + (sum >>> 31);
+        return sum >= M31 ? sum - M31 : sum;
+    }
+
+    /**
+     * Power of an element by square and multiply
+     *
+     * @param base     element below p
+     * @param exponent non-negative exponent
+     * @return
+     */
+    public long Pow(long base, long exponent) {
+        long result = 1;
+        while (exponent > 0) {
+            if ((exponent & 1) != 0) {
+                result = Mul(result, base);
+            }
+            base = Mul(base, base);
+            exponent >>>= 1;
+        }
+        return result;
+    }
+
+    /**
+     * Inverse by Fermat's little theorem, a^(p - 2)
+     *
+     * @param a non-zero element
+     * @return
+     */
+    public long Inv(long a) {
+        if (a == 0) {
+            throw new ArithmeticException("0 has no inverse mod 2^" + bits + " - 1");
+        }
+        return Pow(a, prime - 2);
+    }
+
+    /**
+     * Lagrange basis coefficients at x = 0. Weight i is prod(-x_j / (x_i - x_j))
+     * over all j != i, with one inversion for all of them
+     *
+     * @param keys distinct non-zero x keys
+     * @return weights aligned with keys
+     */
+    public long[] Weights(long keys[]) {
+        long numerators[] = new long[keys.length], denominators[] = new long[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            numerators[i] = 1;
+            denominators[i] = 1;
+            for (int j = 0; j < keys.length; j++) {
+                if (j != i) {
+                    numerators[i] = Mul(numerators[i], Sub(0, keys[j]));
+                    denominators[i] = Mul(denominators[i], Sub(keys[i], keys[j]));
+                }
+            }
+            if (denominators[i] == 0) {
+                throw new IllegalArgumentException("Keys must be distinct, " + keys[i] + " is repeated");
+            }
+        }
+
+        // invert the product of the denominators once and peel each one off it
+        long prefix[] = new long[keys.length + 1];
+        prefix[0] = 1;
+        for (int i = 0; i < keys.length; i++) {
+            prefix[i + 1] = Mul(prefix[i], denominators[i]);
+        }
+        long inverse = Inv(prefix[keys.length]);
+        long weights[] = new long[keys.length];
+        for (int i = keys.length - 1; i >= 0; i--) {
+            weights[i] = Mul(numerators[i], Mul(inverse, prefix[i]));
+            inverse = Mul(inverse, denominators[i]);
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,321 @@
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.*;
+
+import jdk.jfr.*;
+
+/**
+ * @author My Tran
+ * @version 1.0
+ * @description Counters and latency histograms of the phases of SSS. Recording
+ *              is off unless the JVM is started with -Dsss.metrics=true, Enabled
+ *              is set over JMX or SetEnabled is called, so a phase only costs a
+ *              volatile read when it is off. While on, every phase is also
+ *              committed as a JFR event that flight recordings pick up.
+ *
+ *              MBeans are registered under ShamirsSecretSharing:type=Metrics for
+ *              the switch and ShamirsSecretSharing:type=Phase,name=... for each
+ *              phase
+ */
+public class Metrics {
+    static final String DOMAIN = "ShamirsSecretSharing";
+    static final int BUCKETS = 64; // bucket b counts durations in [2^b, 2^(b+1)) nanoseconds
+
+    private static volatile boolean enabled = Boolean.getBoolean("sss.metrics");
+    private static final Histogram histograms[] = new Histogram[Phase.values().length];
+
+    /**
+     * Timed phases. Phases can nest, MAE on the codec pipeline includes CODEC
+     */
+    public enum Phase {
+        COEFFICIENTS, // seeding and drawing random coefficients
+        EVALUATION, // evaluating the polynomials into the shares
+        RASTER_COPY, // copying pixels between images and flat arrays
+        CODEC, // encoding or decoding images in memory
+        INTERPOLATION, // Lagrange weights and combining shares
+        MAE // mean average error
+    }
+
+    static {
+        for (Phase phase : Phase.values()) {
+            histograms[phase.ordinal()] = new Histogram();
+        }
+        Register();
+    }
+
+    /**
+     * Switch recording on or off
+     *
+     * @param on
+     */
+    public static void SetEnabled(boolean on) {
+        enabled = on;
+    }
+
+    public static boolean IsEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Start timing a phase
+     *
+     * @return start time to pass to Stop, 0 when recording is off
+     */
+    public static long Start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Record a phase started with Start
+     *
+     * @param phase phase that ran
+     * @param start value returned by Start
+     * @param bytes bytes the phase processed, 0 if it does not apply
+     */
+    public static void Stop(Phase phase, long start, long bytes) {
+        if (start == 0) {
+            return;
+        }
+        long nanos = System.nanoTime() - start;
+        histograms[phase.ordinal()].Record(nanos, bytes);
+
+        PhaseEvent event = new PhaseEvent();
+        if (event.shouldCommit()) {
+            event.phase = phase.name();
+            event.elapsed = nanos;
+            event.bytes = bytes;
+            event.commit();
+        }
+    }
+
+    /**
+     * Clear every counter and histogram
+     */
+    public static void Reset() {
+        for (Histogram histogram : histograms) {
+            histogram.Reset();
+        }
+    }
+
+    /**
+     * One line per phase that ran with its count, mean and percentiles
+     *
+     * @return
+     */
+    public static String Report() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.ROOT, "%-14s%8s%12s%12s%12s%12s%12s%n", "phase", "count", "mean ms",
+                "p50 ms", "p99 ms", "max ms", "MB"));
+        for (Phase phase : Phase.values()) {
+            Histogram histogram = histograms[phase.ordinal()];
+            if (histogram.getCount() > 0) {
+                report.append(String.format(Locale.ROOT, "%-14s%8d%12.3f%12.3f%12.3f%12.3f%12.1f%n", phase,
+                        histogram.getCount(), histogram.getMeanMillis(), histogram.getP50Millis(),
+                        histogram.getP99Millis(), histogram.getMaxMillis(), histogram.getBytes() / 1e6));
+            }
+        }
+        return report.toString();
+    }
+
+    /**
+     * Registers the MBeans with the platform MBean server. Failing to register,
+     * for example when another class loader already did, leaves recording working
+     */
+    private static void Register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(new StandardMBean(new Control(), ControlMXBean.class, true),
+                    new ObjectName(DOMAIN + ":type=Metrics"));
+            for (Phase phase : Phase.values()) {
+                server.registerMBean(new StandardMBean(histograms[phase.ordinal()], PhaseMXBean.class, true),
+                        new ObjectName(DOMAIN + ":type=Phase,name=" + phase));
+            }
+        } catch (JMException | SecurityException e) {
+            System.err.println("Metrics MBeans not registered: " + e);
+        }
+    }
+
+    /**
+     * Switch and reset over JMX
+     */
+    public interface ControlMXBean {
+        boolean isEnabled();
+
+        void setEnabled(boolean enabled);
+
+        void reset();
+    }
+
+    /**
+     * Counters and latency percentiles of one phase over JMX. Percentiles are the
+     * upper bound of their power of two bucket
+     */
+    public interface PhaseMXBean {
+        long getCount();
+
+        long getBytes();
+
+        double getTotalMillis();
+
+        double getMeanMillis();
+
+        double getMaxMillis();
+
+        double getP50Millis();
+
+        double getP95Millis();
+
+        double getP99Millis();
+
+        long[] getHistogram();
+
+        void reset();
+    }
+
+    private static class Control implements ControlMXBean {
+        @Override
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        @Override
+        public void setEnabled(boolean on) {
+            enabled = on;
+        }
+
+        @Override
+        public void reset() {
+            Reset();
+        }
+    }
+
+    /**
+     * Latency histogram of a phase with power of two buckets. Phases are recorded
+     * from pool threads, so the totals are adders and the buckets atomic
+     */
+    static class Histogram implements PhaseMXBean {
+        private final LongAdder count = new LongAdder(), nanos = new LongAdder(), bytes = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+        void Record(long duration, long processed) {
+            count.increment();
+            nanos.add(duration);
+            bytes.add(processed);
+            max.accumulateAndGet(duration, Math::max);
+            buckets.incrementAndGet(63 - Long.numberOfLeadingZeros(Math.max(duration, 1)));
+        }
+
+        void Reset() {
+            count.reset();
+            nanos.reset();
+            bytes.reset();
+            max.set(0);
+            for (int b = 0; b < BUCKETS; b++) {
+                buckets.set(b, 0);
+            }
+        }
+
+        /**
+         * Upper bound of the bucket holding a percentile
+         *
+         * @param percentile between 0 and 100
+         * @return milliseconds
+         */
+        double Percentile(int percentile) {
+            long counts[] = getHistogram();
+            long total = 0;
+            for (long c : counts) {
+                total += c;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+            for (int b = 0; b < BUCKETS; b++) {
+                rank -= counts[b];
+                if (rank <= 0) {
+                    return Math.min(Math.scalb(1.0, b + 1), max.get()) / 1e6;
+                }
+            }
+            return 0;
+        }
+
+        @Override
+        public long getCount() {
+            return count.sum();
+        }
+
+        @Override
+        public long getBytes() {
+            return bytes.sum();
+        }
+
+        @Override
+        public double getTotalMillis() {
+            return nanos.sum() / 1e6;
+        }
+
+        @Override
+        public double getMeanMillis() {
+            long c = count.sum();
+            return c == 0 ? 0 : nanos.sum() / 1e6 / c;
+        }
+
+        @Override
+        public double getMaxMillis() {
+            return max.get() / 1e6;
+        }
+
+        @Override
+        public double getP50Millis() {
+            return Percentile(50);
+        }
+
+        @Override
+        public double getP95Millis() {
+            return Percentile(95);
+        }
+
+        @Override
+        public double getP99Millis() {
+            return Percentile(99);
+        }
+
+        @Override
+        public long[] getHistogram() {
+            long counts[] = new long[BUCKETS];
+            for (int b = 0; b < BUCKETS; b++) {
+                counts[b] = buckets.get(b);
+            }
+            return counts;
+        }
+
+        @Override
+        public void reset() {
+            Reset();
+        }
+    }
+
+    /**
+     * JFR event of one recorded phase. The duration is a field because the phase
+     * was timed before the event was made
+     */
+    @Name("ShamirsSecretSharing.Phase")
+    @Label("SSS Phase")
+    @Category("Shamir's Secret Sharing")
+    @StackTrace(false)
+    static class PhaseEvent extends Event {
+        @Label("Phase")
+        String phase;
+
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+    }
+}
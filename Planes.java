@@ -0,0 +1,153 @@
+import java.awt.image.*;
+
+/**
+ * @author My Tran
+ * @version 1.0
+ * @description Direct access to the byte and int arrays backing an image's
+ *              raster so pixel data can be processed without encoding it to a
+ *              file format first
+ */
+public class Planes {
+
+    /**
+     * Checks if the image is backed by a single byte or int array that holds its
+     * pixels row after row with no padding or offset
+     *
+     * @param image image to check
+     * @return true if Bytes or Ints can be used on the image
+     */
+    public static boolean IsDirect(BufferedImage image) {
+        WritableRaster raster = image.getRaster();
+        DataBuffer buffer = raster.getDataBuffer();
+        SampleModel model = raster.getSampleModel();
+
+        // sub images and palettes are not plain pixel planes
+        if (raster.getParent() != null || raster.getSampleModelTranslateX() != 0
+                || raster.getSampleModelTranslateY() != 0 || image.getColorModel() instanceof IndexColorModel) {
+            return false;
+        }
+        if (buffer.getNumBanks() != 1 || buffer.getOffset() != 0) {
+            return false;
+        }
+
+        if (buffer instanceof DataBufferByte && model instanceof PixelInterleavedSampleModel) {
+            PixelInterleavedSampleModel interleaved = (PixelInterleavedSampleModel) model;
+            return interleaved.getPixelStride() == interleaved.getNumBands()
+                    && interleaved.getScanlineStride() == image.getWidth() * interleaved.getPixelStride();
+        }
+        if (buffer instanceof DataBufferInt && model instanceof SinglePixelPackedSampleModel) {
+            return ((SinglePixelPackedSampleModel) model).getScanlineStride() == image.getWidth();
+        }
+        return false;
+    }
+
+    /**
+     * Checks if all images are direct and share the same size and pixel layout so
+     * their planes line up index for index
+     *
+     * @param images images to compare
+     * @return true if the planes of all images can be combined element-wise
+     */
+    public static boolean SameLayout(BufferedImage... images) {
+        BufferedImage first = images[0];
+        if (!IsDirect(first)) {
+            return false;
+        }
+
+        for (int i = 1; i < images.length; i++) {
+            BufferedImage image = images[i];
+            if (!IsDirect(image) || image.getWidth() != first.getWidth() || image.getHeight() != first.getHeight()
+                    || image.getRaster().getDataBuffer().getDataType() != first.getRaster().getDataBuffer()
+                            .getDataType()
+                    || PixelStride(image) != PixelStride(first)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Byte plane of a direct byte image
+     *
+     * @param image direct image backed by a DataBufferByte
+     * @return array backing the raster, not a copy
+     */
+    public static byte[] Bytes(BufferedImage image) {
+        return ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+    }
+
+    /**
+     * Int plane of a direct int image
+     *
+     * @param image direct image backed by a DataBufferInt
+     * @return array backing the raster, not a copy
+     */
+    public static int[] Ints(BufferedImage image) {
+        return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+
+    /**
+     * Checks if a direct image is backed by bytes rather than ints
+     *
+     * @param image direct image
+     * @return true for byte planes, false for int planes
+     */
+    public static boolean IsBytePlane(BufferedImage image) {
+        return image.getRaster().getDataBuffer() instanceof DataBufferByte;
+    }
+
+    /**
+     * Number of plane elements making up one pixel
+     *
+     * @param image direct image
+     * @return bytes per pixel for byte planes, 1 for int planes
+     */
+    public static int PixelStride(BufferedImage image) {
+        SampleModel model = image.getRaster().getSampleModel();
+        if (model instanceof PixelInterleavedSampleModel) {
+            return ((PixelInterleavedSampleModel) model).getPixelStride();
+        }
+        return 1;
+    }
+
+    /**
+     * Mask of the bytes within an int pixel that hold samples. Unused alpha bytes
+     * of RGB int images are left out
+     *
+     * @param image direct int image
+     * @return mask with 0xFF in every used byte lane
+     */
+    public static int IntSampleMask(BufferedImage image) {
+        return image.getColorModel().hasAlpha() ? 0xFFFFFFFF : 0x00FFFFFF;
+    }
+
+    /**
+     * Creates an empty image with the same size, color model and pixel layout
+     *
+     * @param image image to copy the layout of
+     * @return new image backed by its own planes
+     */
+    public static BufferedImage CreateCompatible(BufferedImage image) {
+        ColorModel colorModel = image.getColorModel();
+        return new BufferedImage(colorModel, image.getRaster().createCompatibleWritableRaster(),
+                colorModel.isAlphaPremultiplied(), null);
+    }
+
+    /**
+     * Copies images without a standard direct layout, such as paletted or 16 bit
+     * PNGs, into TYPE_3BYTE_BGR or TYPE_INT_ARGB so they can be shared and saved
+     *
+     * @param image decoded image
+     * @return image itself if it already has a standard direct layout
+     */
+    public static BufferedImage Standardize(BufferedImage image) {
+        if (IsDirect(image) && image.getType() != BufferedImage.TYPE_CUSTOM) {
+            return image;
+        }
+
+        BufferedImage standard = new BufferedImage(image.getWidth(), image.getHeight(),
+                image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_3BYTE_BGR);
+        standard.getGraphics().drawImage(image, 0, 0, null);
+        return standard;
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * @author My Tran
+ * @version 1.0
+ * @description Evaluates the random terms a1*x + a2*x^2 + ... + a(k-1)*x^(k-1)
+ *              of the sharing polynomial mod q, or in GF(2^8) for the Binary
+ *              methods. coefficients[r - 1] holds ar
+ */
+public class Polynomial {
+
+    /**
+     * Evaluation with double precision powers. Only exact while the terms fit in
+     * the 53 bit mantissa of a double, kept to compare against
+     *
+     * @param coefficients a1 to a(k-1)
+     * @param keyX         x to evaluate at
+     * @param prime        prime field q
+     * @return terms mod q
+     */
+    public static int Pow(int coefficients[], int keyX, int prime) {
+        long terms = 0;
+        for (int r = 1; r <= coefficients.length; r++) {
+            terms += (long) (coefficients[r - 1] * Math.pow(keyX, r));
+        }
+        return (int) (terms % prime);
+    }
+
+    /**
+     * Horner's scheme (((a(k-1) * x + a(k-2)) * x + ... + a1) * x mod q, reducing
+     * after every step so the value never leaves the field
+     *
+     * @param coefficients a1 to a(k-1), each below q
+     * @param keyX         x to evaluate at, below q
+     * @param field        tables of the prime field q
+     * @return terms mod q
+     */
+    public static int Horner(int coefficients[], int keyX, PrimeField field) {
+        int terms = 0;
+        for (int r = coefficients.length - 1; r >= 0; r--) {
+            terms = field.Mul(field.Add(terms, coefficients[r]), keyX);
+        }
+        return terms;
+    }
+
+    /**
+     * Powers x^1 to x^degree mod q of a share key, computed once per share
+     *
+     * @param keyX   x key of the share
+     * @param degree highest power needed, k-1
+     * @param field  tables of the prime field q
+     * @param powers array of at least degree entries to fill, powers[r - 1] = x^r
+     * @return powers
+     */
+    public static int[] PowerTable(int keyX, int degree, PrimeField field, int powers[]) {
+        int power = 1;
+        for (int r = 1; r <= degree; r++) {
+            power = field.Mul(power, keyX);
+            powers[r - 1] = power;
+        }
+        return powers;
+    }
+
+    /**
+     * Dot product of the coefficients with a power table and a single reduction
+     * mod q
+     *
+     * @param coefficients a1 to a(k-1), each below q
+     * @param powers       table from PowerTable for the share key
+     * @param field        tables of the prime field q
+     * @return terms mod q
+     */
+    public static int Table(int coefficients[], int powers[], PrimeField field) {
+        // each product is below q^2 and k is at most q, so the sum fits in an int
+        int terms = 0;
+        for (int r = 0; r < coefficients.length; r++) {
+            terms += coefficients[r] * powers[r];
+        }
+        return field.Reduce(terms);
+    }
+
+    /**
+     * Horner's scheme in GF(2^8)
+     *
+     * @param coefficients a1 to a(k-1), each below 256
+     * @param keyX         x to evaluate at, below 256
+     * @return terms in GF(2^8)
+     */
+    public static int BinaryHorner(int coefficients[], int keyX) {
+        int terms = 0;
+        for (int r = coefficients.length - 1; r >= 0; r--) {
+            terms = BinaryField.Mul(terms ^ coefficients[r], keyX);
+        }
+        return terms;
+    }
+
+    /**
+     * Powers x^1 to x^degree in GF(2^8) of a share key
+     *
+     * @param keyX   x key of the share
+     * @param degree highest power needed, k-1
+     * @param powers array of at least degree entries to fill, powers[r - 1] = x^r
+     * @return powers
+     */
+    public static int[] BinaryPowerTable(int keyX, int degree, int powers[]) {
+        int power = 1;
+        for (int r = 1; r <= degree; r++) {
+            power = BinaryField.Mul(power, keyX);
+            powers[r - 1] = power;
+        }
+        return powers;
+    }
+
+    /**
+     * Dot product of the coefficients with a power table in GF(2^8). Sums are XORs
+     * so there is nothing to reduce
+     *
+     * @param coefficients a1 to a(k-1), each below 256
+     * @param powers       table from BinaryPowerTable for the share key
+     * @return terms in GF(2^8)
+     */
+    public static int BinaryTable(int coefficients[], int powers[]) {
+        int terms = 0;
+        for (int r = 0; r < coefficients.length; r++) {
+            terms ^= BinaryField.Mul(coefficients[r], powers[r]);
+        }
+        return terms;
+    }
+}
@@ -0,0 +1,173 @@
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author My Tran
+ * @version 1.0
+ * @description Arithmetic in a prime field of fewer than 256 elements backed by
+ *              precomputed tables. Products and inverses are single lookups,
+ *              and reductions use a multiply by a precomputed reciprocal
+ *              instead of a division, with no branches
+ */
+public class PrimeField {
+    private static final ConcurrentHashMap<Integer, PrimeField> fields = new ConcurrentHashMap<>();
+
+    public final int prime; // q
+    public final int generator; // generator of the multiplicative group
+    private final long reciprocal; // floor(2^32 / q) for reductions
+    private final byte mulTable[]; // a * b mod q at index a << 8 | b
+    private final int invTable[]; // inverse of a mod q, 0 for a = 0
+    private final int expTable[]; // g^i mod q for i in 0 to 2(q - 1)
+    private final int logTable[]; // i with g^i = a, unused for a = 0
+
+    private PrimeField(int prime) {
+        this.prime = prime;
+        reciprocal = (1L << 32) / prime;
+
+        mulTable = new byte[1 << 16];
+        for (int a = 0; a < prime; a++) {
+            for (int b = 0; b < prime; b++) {
+                mulTable[a << 8 | b] = (byte) (a * b % prime);
+            }
+        }
+
+        generator = FindGenerator(prime);
+        expTable = new int[2 * (prime - 1)];
+        logTable = new int[prime];
+        for (int i = 0, power = 1; i < expTable.length; i++) {
+            expTable[i] = power;
+            if (i < prime - 1) {
+                logTable[power] = i;
+            }
+            power = power * generator % prime;
+        }
+
+        invTable = new int[prime];
+        for (int a = 1; a < prime; a++) {
+            invTable[a] = expTable[(prime - 1 - logTable[a]) % (prime - 1)];
+        }
+    }
+
+    /**
+     * Tables for a prime field, built once and shared
+     *
+     * @param prime q, a prime below 256
+     * @return
+     */
+    public static PrimeField For(int prime) {
+        if (prime < 2 || prime > 255) {
+            throw new IllegalArgumentException("Table arithmetic needs a prime below 256, got " + prime);
+        }
+        return fields.computeIfAbsent(prime, PrimeField::new);
+    }
+
+    /**
+     * Smallest element whose powers reach every non-zero element
+     *
+     * @param prime
+     * @return
+     */
+    private static int FindGenerator(int prime) {
+        for (int candidate = 2; candidate < prime; candidate++) {
+            int power = candidate, order = 1;
+            while (power != 1) {
+                power = power * candidate % prime;
+                order++;
+            }
+            if (order == prime - 1) {
+                return candidate;
+            }
+        }
+        return 1; // q = 2
+    }
+
+    /**
+     * x mod q for any non-negative int without dividing. The estimated quotient
+     * is off by at most one, which a masked subtraction corrects
+     *
+     * @param x value of at least 0
+     * @return
+     */
+    public int Reduce(int x) {
+        int remainder = x - (int) ((x * reciprocal) >>> 32) * prime - prime;
+        return remainder + ((remainder >> 31) & prime);
+    }
+
+    /**
+     * (a + b) mod q for a and b in the field
+     *
+     * @param a
+     * @param b
+     * @return
+     */
+    public int Add(int a, int b) {
+        int sum = a + b - prime;
+        return sum + ((sum >> 31) & prime);
+    }
+
+    /**
+     * (a - b) mod q for a and b in the field
+     *
+     * @param a
+     * @param b
+     * @return
+     */
+    public int Sub(int a, int b) {
+        int difference = a - b;
+        return difference + ((difference >> 31) & prime);
+    }
+
+    /**
+     * a * b mod q for a and b in the field
+     *
+     * @param a
+     * @param b
+     * @return
+     */
+    public int Mul(int a, int b) {
+        return mulTable[a << 8 | b] & 0xFF;
+    }
+
+    /**
+     * Multiplicative inverse of a non-zero field element
+     *
+     * @param a
+     * @return
+     */
+    public int Inv(int a) {
+        if (a == 0) {
+            throw new ArithmeticException("0 has no inverse mod " + prime);
+        }
+        return invTable[a];
+    }
+
+    /**
+     * g^i mod q
+     *
+     * @param i exponent between 0 and 2(q - 1)
+     * @return
+     */
+    public int Exp(int i) {
+        return expTable[i];
+    }
+
+    /**
+     * Discrete logarithm of a non-zero field element to the base g
+     *
+     * @param a
+     * @return
+     */
+    public int Log(int a) {
+        return logTable[a];
+    }
+
+    /**
+     * Maps any int, including negatives, into the field
+     *
+     * @param x
+     * @return
+     */
+    public int Element(int x) {
+        int remainder = x % prime;
+        return remainder + ((remainder >> 31) & prime);
+    }
+}
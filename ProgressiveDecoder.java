@@ -0,0 +1,249 @@
+import java.awt.Rectangle;
+import java.awt.image.*;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * @author My Tran
+ * @version 1.0
+ * @description Reconstructs secrets from share files for viewers of large
+ *              images. A rectangle can be reconstructed on its own, reading
+ *              only the elements inside it from each mapped share. Decode first
+ *              hands out a low resolution preview, interpolated from shares
+ *              downscaled by 2 band by band, then refines a rectangle of
+ *              interest and the rest of the image band by band
+ */
+public class ProgressiveDecoder {
+    static final int TASK_ROWS = 32; // rows of the secret handled by one task
+
+    private ForkJoinPool pool; // null to run on the calling thread
+    private int bandRows = 256; // rows refined between two updates
+
+    /**
+     * Receives the image as it gets refined
+     */
+    public interface Listener {
+        /**
+         * Called on the decoding thread after part of an image is reconstructed
+         *
+         * @param image  preview, or the full size secret being filled in
+         * @param region part of image that was just reconstructed
+         * @param factor 1 for the full size secret, the downscale factor for the
+         *               preview
+         */
+        void Update(BufferedImage image, Rectangle region, int factor);
+    }
+
+    /**
+     * Run the reconstruction on a pool
+     *
+     * @param pool pool to run on, null to run on the calling thread
+     */
+    public void SetParallelism(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Set the number of rows refined between two updates
+     *
+     * @param rows
+     */
+    public void SetBandRows(int rows) {
+        if (rows < 1) {
+            throw new IllegalArgumentException("Bands need at least one row, got " + rows);
+        }
+        bandRows = rows;
+    }
+
+    /**
+     * Reconstructs a rectangle of the secret
+     *
+     * @param shares at least k open share files of the same secret
+     * @param region rectangle of the secret in pixels
+     * @return image of the rectangle's size
+     * @throws IOException if the shares do not belong together
+     */
+    public BufferedImage Region(ShareFile shares[], Rectangle region) throws IOException {
+        BufferedImage out = new BufferedImage(region.width, region.height, shares[0].imageType);
+        RegionInto(shares, region, out, 0, 0);
+        return out;
+    }
+
+    /**
+     * Reconstructs a rectangle into part of an image with its rows split across
+     * the pool
+     *
+     * @param shares
+     * @param region rectangle of the secret in pixels
+     * @param out    image of the shares' type
+     * @param outX   column of out receiving the rectangle's left edge
+     * @param outY   row of out receiving the rectangle's top edge
+     * @throws IOException
+     */
+    private void RegionInto(ShareFile shares[], Rectangle region, BufferedImage out, int outX, int outY)
+            throws IOException {
+        // checks the shares before any task runs
+        ShareFile.Weights(shares);
+        try {
+            SSS.RunTasks(pool, (region.height + TASK_ROWS - 1) / TASK_ROWS, task -> {
+                int first = task * TASK_ROWS, rows = Math.min(TASK_ROWS, region.height - first);
+                try {
+                    ShareFile.ReconstructRegion(shares, new Rectangle(region.x, region.y + first, region.width, rows),
+                            out, outX, outY + first);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Low resolution preview of the secret. Each band of factor rows is read from
+     * the first k shares and downscaled by 2, which gives shares of rows of the
+     * secret downscaled by 2, and only those are interpolated. The interpolated
+     * rows are downscaled the rest of the way as a plain image, since shares
+     * downscaled by more than 2 are no longer shares. Samples are clamped to q - 1
+     * before averaging, so the preview can differ from a downscale of the secret
+     * where samples reach q
+     *
+     * @param shares at least k open share files of the same secret
+     * @param factor width and height of the blocks averaged into a pixel, an
+     *               even number
+     * @return secret downscaled by factor
+     * @throws IOException if the shares do not belong together
+     */
+    public BufferedImage Preview(ShareFile shares[], int factor) throws IOException {
+        ShareFile first = shares[0];
+        int weights[] = ShareFile.Weights(shares);
+        if (first.primeField == BinaryField.ORDER) {
+            throw new IllegalStateException("Downscaled shares only reconstruct in a prime field, not GF(2^8)");
+        }
+        if (factor < ShareOperations.SHARE_FACTOR || factor % ShareOperations.SHARE_FACTOR != 0) {
+            throw new IllegalArgumentException("Previews start from shares downscaled by "
+                    + ShareOperations.SHARE_FACTOR + ", factor must be a multiple of it, got " + factor);
+        }
+        if (factor > first.width || factor > first.height) {
+            throw new IllegalArgumentException("Cannot downscale a " + first.width + "x" + first.height + " image by "
+                    + factor);
+        }
+
+        BufferedImage preview = new BufferedImage(first.width / factor, first.height / factor, first.imageType);
+        boolean bytePlane = Planes.IsBytePlane(preview);
+        int stride = bytePlane ? Planes.PixelStride(preview) : 1;
+        int rowLength = preview.getWidth() * stride;
+        int halfWidth = first.width / ShareOperations.SHARE_FACTOR, rest = factor / ShareOperations.SHARE_FACTOR;
+        ShareOperations operations = new ShareOperations(first.primeField);
+
+        int rowsPerTask = Math.max(1, TASK_ROWS / factor);
+        SSS.RunTasks(pool, (preview.getHeight() + rowsPerTask - 1) / rowsPerTask, task -> {
+            int top = task * rowsPerTask, rows = Math.min(rowsPerTask, preview.getHeight() - top);
+            Share bands[] = new Share[weights.length];
+            for (int s = 0; s < weights.length; s++) {
+                bands[s] = shares[s].ReadRows(top * factor, rows * factor);
+            }
+            bands = operations.Downscale(bands);
+
+            // rows of the secret downscaled by 2, then by the rest of factor
+            int halfLength = rows * rest * halfWidth * stride;
+            BufferedImage half = new BufferedImage(halfWidth, rows * rest, first.imageType);
+            if (bytePlane) {
+                byte planes[][] = new byte[bands.length][];
+                for (int s = 0; s < bands.length; s++) {
+                    planes[s] = Planes.Bytes(bands[s].shareImage);
+                }
+                Reconstructor.Combine(planes, weights, first.primeField, 0, halfLength, Planes.Bytes(half), 0);
+            } else {
+                int planes[][] = new int[bands.length][];
+                for (int s = 0; s < bands.length; s++) {
+                    planes[s] = Planes.Ints(bands[s].shareImage);
+                }
+                Reconstructor.CombineInts(planes, weights, first.primeField, 0, halfLength, Planes.Ints(half), 0);
+            }
+
+            BufferedImage scaled = rest == 1 ? half : operations.Downscale(half, rest);
+            if (bytePlane) {
+                System.arraycopy(Planes.Bytes(scaled), 0, Planes.Bytes(preview), top * rowLength, rows * rowLength);
+            } else {
+                System.arraycopy(Planes.Ints(scaled), 0, Planes.Ints(preview), top * rowLength, rows * rowLength);
+            }
+        });
+        return preview;
+    }
+
+    /**
+     * Reconstructs the whole secret progressively. The listener gets the preview
+     * downscaled by factor first, then the rectangle of interest at full size,
+     * then the rest of the image one band of rows at a time
+     *
+     * @param shares   at least k open share files of the same secret
+     * @param factor   downscale factor of the preview, an even number
+     * @param focus    rectangle to refine first, such as the part on screen, or
+     *                 null
+     * @param listener receives each update
+     * @return full size secret
+     * @throws IOException if the shares do not belong together
+     */
+    public BufferedImage Decode(ShareFile shares[], int factor, Rectangle focus, Listener listener)
+            throws IOException {
+        ShareFile first = shares[0];
+        Rectangle bounds = new Rectangle(first.width, first.height);
+
+        BufferedImage preview = Preview(shares, factor);
+        listener.Update(preview, new Rectangle(preview.getWidth(), preview.getHeight()), factor);
+
+        BufferedImage secret = new BufferedImage(first.width, first.height, first.imageType);
+        if (focus != null) {
+            focus = focus.intersection(bounds);
+            if (focus.isEmpty()) {
+                focus = null;
+            } else {
+                RegionInto(shares, focus, secret, focus.x, focus.y);
+                listener.Update(secret, focus, 1);
+            }
+        }
+
+        for (int y = 0; y < first.height; y += bandRows) {
+            Rectangle band = new Rectangle(0, y, first.width, Math.min(bandRows, first.height - y));
+            for (Rectangle part : Remainder(band, focus)) {
+                RegionInto(shares, part, secret, part.x, part.y);
+            }
+            listener.Update(secret, band, 1);
+        }
+        return secret;
+    }
+
+    /**
+     * Parts of a band of full rows outside a rectangle
+     *
+     * @param band  rows spanning the whole width
+     * @param focus rectangle already reconstructed, or null
+     * @return up to four rectangles covering the rest of band
+     */
+    static List<Rectangle> Remainder(Rectangle band, Rectangle focus) {
+        List<Rectangle> parts = new ArrayList<>();
+        if (focus == null || !band.intersects(focus)) {
+            parts.add(band);
+            return parts;
+        }
+
+        int top = Math.max(band.y, focus.y), bottom = Math.min(band.y + band.height, focus.y + focus.height);
+        int right = focus.x + focus.width;
+        if (band.y < top) {
+            parts.add(new Rectangle(band.x, band.y, band.width, top - band.y));
+        }
+        if (focus.x > band.x) {
+            parts.add(new Rectangle(band.x, top, focus.x - band.x, bottom - top));
+        }
+        if (right < band.x + band.width) {
+            parts.add(new Rectangle(right, top, band.x + band.width - right, bottom - top));
+        }
+        if (bottom < band.y + band.height) {
+            parts.add(new Rectangle(band.x, bottom, band.width, band.y + band.height - bottom));
+        }
+        return parts;
+    }
+}
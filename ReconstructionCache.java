@@ -0,0 +1,495 @@
+import java.awt.image.*;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+import javax.management.*;
+
+/**
+ * @author My Tran
+ * @version 1.0
+ * @description Bounded least recently used cache of reconstructed secrets and
+ *              their downscaled derivatives. Entries are weighed in bytes and
+ *              the least recently used ones are evicted once the total passes
+ *              the capacity. A key is the set of shares a result came from plus
+ *              the scale level, so the same shares in another order hit the same
+ *              entry. Keys hold share images weakly, and entries whose images
+ *              were collected are dropped, so the cache never keeps images
+ *              beyond its capacity alive.
+ *
+ *              A result being computed is shared with every caller asking for
+ *              the same key meanwhile instead of being computed again. Cached
+ *              values are handed out as they are, callers must not modify them
+ */
+public class ReconstructionCache<V> {
+    private final long capacity; // bytes the entries may weigh in total
+    private final ToLongFunction<V> weigher;
+    private final LinkedHashMap<Key, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final HashMap<Key, CompletableFuture<V>> loading = new HashMap<>();
+    private long bytes; // weight of the entries
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder(), evictions = new LongAdder();
+    private ObjectName registered; // name of the MBean, null when not registered
+
+    /**
+     * Computes a value missing from the cache
+     */
+    public interface Loader<V, E extends Exception> {
+        V Load() throws E;
+    }
+
+    private static class Entry<V> {
+        final V value;
+        final long weight;
+
+        Entry(V value, long weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Constructor for ReconstructionCache
+     *
+     * @param capacity bytes the entries may weigh in total
+     * @param weigher  size of a value in bytes
+     */
+    public ReconstructionCache(long capacity, ToLongFunction<V> weigher) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative, got " + capacity);
+        }
+        this.capacity = capacity;
+        this.weigher = weigher;
+    }
+
+    /**
+     * Cache of images weighed by their pixel data
+     *
+     * @param capacity bytes the images may take in total
+     * @return
+     */
+    public static ReconstructionCache<BufferedImage> Images(long capacity) {
+        return new ReconstructionCache<>(capacity, ReconstructionCache::ImageBytes);
+    }
+
+    /**
+     * Cache of byte arrays such as encoded images
+     *
+     * @param capacity bytes the arrays may take in total
+     * @return
+     */
+    public static ReconstructionCache<byte[]> ByteArrays(long capacity) {
+        return new ReconstructionCache<>(capacity, array -> array.length);
+    }
+
+    /**
+     * Bytes held by the raster of an image
+     *
+     * @param image
+     * @return
+     */
+    static long ImageBytes(BufferedImage image) {
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        return (long) buffer.getSize() * buffer.getNumBanks() * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+    }
+
+    /**
+     * Cached value of a key, computing and caching it on a miss. A caller asking
+     * for a key that is being computed waits for that result, and computes it
+     * itself if that computation fails
+     *
+     * @param key    shares and scale level of the value
+     * @param loader computes the value on a miss
+     * @return
+     * @throws E what the loader throws
+     */
+    public <E extends Exception> V Get(Key key, Loader<V, E> loader) throws E {
+        CompletableFuture<V> pending;
+        boolean owner = false;
+        synchronized (this) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null) {
+                hits.increment();
+                return entry.value;
+            }
+            pending = loading.get(key);
+            if (pending == null) {
+                misses.increment();
+                pending = new CompletableFuture<>();
+                loading.put(key, pending);
+                owner = true;
+            } else {
+                hits.increment();
+            }
+        }
+
+        if (!owner) {
+            try {
+                return pending.join();
+            } catch (CompletionException e) {
+                return loader.Load();
+            }
+        }
+
+        try {
+            V value = loader.Load();
+            synchronized (this) {
+                loading.remove(key);
+                Insert(key, value);
+            }
+            pending.complete(value);
+            return value;
+        } catch (Throwable e) {
+            synchronized (this) {
+                loading.remove(key);
+            }
+            pending.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Cached value of a key without computing it
+     *
+     * @param key
+     * @return value, null on a miss
+     */
+    public synchronized V Get(Key key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value;
+    }
+
+    /**
+     * Caches a value, replacing the one the key had
+     *
+     * @param key
+     * @param value
+     */
+    public synchronized void Put(Key key, V value) {
+        Insert(key, value);
+    }
+
+    /**
+     * Adds an entry and evicts the least recently used ones until the cache fits
+     * its capacity. A value weighing more than the whole capacity is not kept
+     *
+     * @param key
+     * @param value
+     */
+    private void Insert(Key key, V value) {
+        Purge();
+        long weight = weigher.applyAsLong(value);
+        Entry<V> replaced = entries.remove(key);
+        if (replaced != null) {
+            bytes -= replaced.weight;
+        }
+        if (weight > capacity) {
+            return;
+        }
+
+        entries.put(key, new Entry<>(value, weight));
+        bytes += weight;
+        Iterator<Entry<V>> eldest = entries.values().iterator();
+        while (bytes > capacity) {
+            bytes -= eldest.next().weight;
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Drops the entries whose key lost an image to the garbage collector. They
+     * can no longer be hit and count as evictions
+     */
+    private void Purge() {
+        Iterator<Map.Entry<Key, Entry<V>>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Key, Entry<V>> entry = iterator.next();
+            if (entry.getKey().IsCleared()) {
+                bytes -= entry.getValue().weight;
+                iterator.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Drops every entry, the counters are kept
+     */
+    public synchronized void Clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    public long Hits() {
+        return hits.sum();
+    }
+
+    public long Misses() {
+        return misses.sum();
+    }
+
+    public long Evictions() {
+        return evictions.sum();
+    }
+
+    public synchronized int Size() {
+        Purge();
+        return entries.size();
+    }
+
+    public synchronized long Bytes() {
+        Purge();
+        return bytes;
+    }
+
+    public long Capacity() {
+        return capacity;
+    }
+
+    /**
+     * Share of lookups that were hits
+     *
+     * @return between 0 and 1, 0 before any lookup
+     */
+    public double HitRate() {
+        long h = hits.sum(), total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    /**
+     * Registers the counters as an MBean under
+     * ShamirsSecretSharing:type=ReconstructionCache,name=... Failing to register
+     * leaves the cache working
+     *
+     * @param name name of this cache among the registered ones
+     */
+    public synchronized void Register(String name) {
+        try {
+            ObjectName objectName = new ObjectName(
+                    Metrics.DOMAIN + ":type=ReconstructionCache,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(
+                    new StandardMBean(new Stats(), CacheMXBean.class, true), objectName);
+            registered = objectName;
+        } catch (JMException | SecurityException e) {
+            System.err.println("Cache MBean not registered: " + e);
+        }
+    }
+
+    /**
+     * Removes the MBean added by Register, if any
+     */
+    public synchronized void Unregister() {
+        if (registered == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(registered);
+        } catch (JMException | SecurityException e) {
+            System.err.println("Cache MBean not unregistered: " + e);
+        }
+        registered = null;
+    }
+
+    /**
+     * Hit and miss counters of a cache over JMX
+     */
+    public interface CacheMXBean {
+        long getHits();
+
+        long getMisses();
+
+        long getEvictions();
+
+        double getHitRate();
+
+        int getSize();
+
+        long getBytes();
+
+        long getCapacity();
+
+        void clear();
+    }
+
+    private class Stats implements CacheMXBean {
+        @Override
+        public long getHits() {
+            return Hits();
+        }
+
+        @Override
+        public long getMisses() {
+            return Misses();
+        }
+
+        @Override
+        public long getEvictions() {
+            return Evictions();
+        }
+
+        @Override
+        public double getHitRate() {
+            return HitRate();
+        }
+
+        @Override
+        public int getSize() {
+            return Size();
+        }
+
+        @Override
+        public long getBytes() {
+            return Bytes();
+        }
+
+        @Override
+        public long getCapacity() {
+            return Capacity();
+        }
+
+        @Override
+        public void clear() {
+            Clear();
+        }
+    }
+
+    /**
+     * Identity of a cached result: the objects it was computed from, compared by
+     * reference and held weakly, the numbers describing them, compared by value,
+     * and the scale level. Both are put in a canonical order by the factories. A
+     * key whose objects were collected equals no other key
+     */
+    public static final class Key {
+        private final WeakReference<?> identities[];
+        private final long content[];
+        private final int level;
+        private final int hash;
+
+        private Key(Object identities[], long content[], int level) {
+            this.identities = new WeakReference<?>[identities.length];
+            this.content = content;
+            this.level = level;
+
+            int h = 31 * level + Arrays.hashCode(content);
+            for (int i = 0; i < identities.length; i++) {
+                this.identities[i] = new WeakReference<>(identities[i]);
+                h = 31 * h + System.identityHashCode(identities[i]);
+            }
+            hash = h;
+        }
+
+        /**
+         * Whether an object of the key was collected
+         *
+         * @return
+         */
+        boolean IsCleared() {
+            for (WeakReference<?> identity : identities) {
+                if (identity.get() == null) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Key of a result computed from a set of shares. Shares are told apart by
+         * their x key and the share image object, not the pixels, so a share image
+         * must not be modified while results from it are cached. The images are
+         * only weakly referenced
+         *
+         * @param shares shares the result was computed from, in any order
+         * @param level  scale level, 0 for full size and l for a downscale by 2^l
+         * @return
+         */
+        public static Key Of(Share shares[], int level) {
+            Share sorted[] = shares.clone();
+            Arrays.sort(sorted, Comparator.comparingInt(share -> share.keyX));
+
+            Object images[] = new Object[sorted.length];
+            long keys[] = new long[sorted.length];
+            for (int i = 0; i < sorted.length; i++) {
+                images[i] = sorted[i].shareImage;
+                keys[i] = sorted[i].keyX;
+            }
+            return new Key(images, keys, level);
+        }
+
+        /**
+         * Key of a derivative of a single image, such as a downscaled secret
+         *
+         * @param image image the result was computed from
+         * @param level scale level
+         * @return
+         */
+        public static Key Of(BufferedImage image, int level) {
+            return new Key(new Object[] { image }, new long[0], level);
+        }
+
+        /**
+         * Key of a result computed from share contents, for shares that arrive as
+         * new objects every time
+         *
+         * @param digests a digest of each share, in any order
+         * @param level   scale level, or another number telling results of the
+         *                same shares apart
+         * @return
+         */
+        public static Key OfContent(byte digests[][], int level) {
+            byte sorted[][] = digests.clone();
+            Arrays.sort(sorted, Arrays::compare);
+
+            int length = 0;
+            for (byte digest[] : sorted) {
+                length += (digest.length + 7) / 8 + 1;
+            }
+            long content[] = new long[length];
+            int c = 0;
+            for (byte digest[] : sorted) {
+                // length first so digests of different lengths cannot run together
+                content[c++] = digest.length;
+                for (int i = 0; i < digest.length; i++) {
+                    content[c + i / 8] |= (digest[i] & 0xFFL) << (8 * (i % 8));
+                }
+                c += (digest.length + 7) / 8;
+            }
+            return new Key(new Object[0], content, level);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (other == this) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            if (hash != key.hash || level != key.level || identities.length != key.identities.length
+                    || !Arrays.equals(content, key.content)) {
+                return false;
+            }
+            for (int i = 0; i < identities.length; i++) {
+                Object identity = identities[i].get();
+                if (identity == null || identity != key.identities[i].get()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
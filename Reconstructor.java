@@ -0,0 +1,311 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @author My Tran
+ * @version 1.0
+ * @description Lagrange interpolation engine for reconstructing secrets from k
+ *              shares. The basis coefficients at x = 0 only depend on the keys
+ *              of the shares, so they are computed once per share set and
+ *              cached by the field and the sorted key tuple packed into a long.
+ */
+public class Reconstructor {
+    static final int WEIGHT_CACHE_ENTRIES = 1024; // key sets whose weights are kept
+    static final int MAX_PACKED_KEYS = 6; // keys of 8 bits fitting a long beside the field and count
+
+    // Cached weights keyed by PackKeys, stored in sorted key order, least recently used dropped first
+    private static final LinkedHashMap<Long, int[]> weightCache = new LinkedHashMap<>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, int[]> eldest) {
+            return size() > WEIGHT_CACHE_ENTRIES;
+        }
+    };
+
+    /**
+     * Lagrange basis coefficients at x = 0 for the given keys. Weight i is
+     * prod(-x_j / (x_i - x_j)) mod p over all j != i
+     *
+     * @param keys  x keys of the shares used for reconstruction
+     * @param prime prime field q, or BinaryField.ORDER for GF(2^8)
+     * @return weights aligned with the order of keys
+     */
+    public static int[] Weights(int keys[], int prime) {
+        int sortedKeys[] = keys.clone();
+        Arrays.sort(sortedKeys);
+        for (int i = 1; i < sortedKeys.length; i++) {
+            // checked before any weight is computed, a repeated key makes a denominator 0
+            if (sortedKeys[i] == sortedKeys[i - 1]) {
+                throw new IllegalArgumentException("Shares must have distinct keys, found key "
+                        + sortedKeys[i] + " twice");
+            }
+        }
+
+        long cacheKey = PackKeys(sortedKeys, prime);
+        int sortedWeights[] = null;
+        if (cacheKey >= 0) {
+            synchronized (weightCache) {
+                sortedWeights = weightCache.get(cacheKey);
+            }
+        }
+        if (sortedWeights == null) {
+            // computed outside the lock, two threads racing on a key set compute the same weights
+            sortedWeights = prime == BinaryField.ORDER ? ComputeBinaryWeights(sortedKeys)
+                    : ComputeWeights(sortedKeys, prime);
+            if (cacheKey >= 0) {
+                synchronized (weightCache) {
+                    weightCache.put(cacheKey, sortedWeights);
+                }
+            }
+        }
+
+        // map the cached weights back onto the order the caller gave the keys in
+        int weights[] = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            weights[i] = sortedWeights[Arrays.binarySearch(sortedKeys, keys[i])];
+        }
+        return weights;
+    }
+
+    /**
+     * Packs a field and a sorted key set into a cache key: the field in bits 0-8,
+     * the number of keys in bits 9-11 and each key in 8 bits above them
+     *
+     * @param sortedKeys keys in ascending order
+     * @param prime      prime field q, or BinaryField.ORDER
+     * @return packed key, -1 if the set has more than MAX_PACKED_KEYS keys or a
+     *         key or field does not fit, and is not cached
+     */
+    static long PackKeys(int sortedKeys[], int prime) {
+        if (sortedKeys.length > MAX_PACKED_KEYS || prime < 0 || prime > BinaryField.ORDER) {
+            return -1;
+        }
+        long packed = prime | (long) sortedKeys.length << 9;
+        for (int i = 0; i < sortedKeys.length; i++) {
+            if (sortedKeys[i] < 0 || sortedKeys[i] > 0xFF) {
+                return -1;
+            }
+            packed |= (long) sortedKeys[i] << (12 + 8 * i);
+        }
+        return packed;
+    }
+
+    /**
+     * Computes the weights for a sorted set of keys
+     *
+     * @param sortedKeys keys in ascending order
+     * @param prime      prime field q
+     * @return weights in the order of sortedKeys
+     */
+    private static int[] ComputeWeights(int sortedKeys[], int prime) {
+        PrimeField field = PrimeField.For(prime);
+        int weights[] = new int[sortedKeys.length];
+
+        for (int i = 0; i < sortedKeys.length; i++) {
+            // numerator and denominator accumulated separately so only one inverse is
+            // needed per weight
+            int numerator = 1, denominator = 1;
+            int keyI = field.Element(sortedKeys[i]);
+            for (int j = 0; j < sortedKeys.length; j++) {
+                if (j != i) {
+                    int keyJ = field.Element(sortedKeys[j]);
+                    numerator = field.Mul(numerator, field.Sub(0, keyJ));
+                    denominator = field.Mul(denominator, field.Sub(keyI, keyJ));
+                }
+            }
+
+            weights[i] = field.Mul(numerator, field.Inv(denominator));
+        }
+
+        return weights;
+    }
+
+    /**
+     * Computes the weights for a sorted set of keys in GF(2^8), where -x = x so
+     * weight i is prod(x_j / (x_i + x_j))
+     *
+     * @param sortedKeys keys in ascending order, each below 256
+     * @return weights in the order of sortedKeys
+     */
+    private static int[] ComputeBinaryWeights(int sortedKeys[]) {
+        int weights[] = new int[sortedKeys.length];
+
+        for (int i = 0; i < sortedKeys.length; i++) {
+            int numerator = 1, denominator = 1;
+            for (int j = 0; j < sortedKeys.length; j++) {
+                if (j != i) {
+                    numerator = BinaryField.Mul(numerator, sortedKeys[j]);
+                    denominator = BinaryField.Mul(denominator, sortedKeys[i] ^ sortedKeys[j]);
+                }
+            }
+
+            weights[i] = BinaryField.Mul(numerator, BinaryField.Inv(denominator));
+        }
+
+        return weights;
+    }
+
+    /**
+     * Interpolates f(0) for every byte in [from, to) as a multiply-accumulate of
+     * the share bytes with the weights, reducing mod q once per byte without a division
+     *
+     * @param shareBytes bytes of each share, one array per weight
+     * @param weights    weights from Weights
+     * @param prime      prime field q
+     * @param out        array receiving the reconstructed bytes
+     * @param from       first index to reconstruct
+     * @param to         index after the last byte to reconstruct
+     */
+    public static void Combine(byte shareBytes[][], int weights[], int prime, byte out[], int from, int to) {
+        Combine(shareBytes, weights, prime, from, to, out, from);
+    }
+
+    /**
+     * Combine writing the bytes at another index of out, such as into an image
+     * of a region of the shares
+     *
+     * @param shareBytes bytes of each share, one array per weight
+     * @param weights    weights from Weights
+     * @param prime      prime field q
+     * @param from       first share index to reconstruct
+     * @param to         share index after the last byte to reconstruct
+     * @param out        array receiving the reconstructed bytes
+     * @param outFrom    index in out of the byte at share index from
+     */
+    public static void Combine(byte shareBytes[][], int weights[], int prime, int from, int to, byte out[],
+            int outFrom) {
+        int shares = weights.length;
+
+        if (prime == BinaryField.ORDER) {
+            for (int i = from, o = outFrom; i < to; i++, o++) {
+                int sum = 0;
+                for (int s = 0; s < shares; s++) {
+                    sum ^= BinaryField.Mul(weights[s], shareBytes[s][i] & 0xFF);
+                }
+                out[o] = (byte) sum;
+            }
+            return;
+        }
+
+        PrimeField field = PrimeField.For(prime);
+
+        // every term is below 256 * q and there are at most q distinct keys, so the
+        // sum cannot overflow an int
+        for (int i = from, o = outFrom; i < to; i++, o++) {
+            int sum = 0;
+            for (int s = 0; s < shares; s++) {
+                sum += (shareBytes[s][i] & 0xFF) * weights[s];
+            }
+            out[o] = (byte) field.Reduce(sum);
+        }
+    }
+
+    /**
+     * Interpolates f(0) for every byte lane of the int pixels in [from, to)
+     *
+     * @param sharePixels int pixels of each share, one array per weight
+     * @param weights     weights from Weights
+     * @param prime       prime field q
+     * @param out         array receiving the reconstructed pixels
+     * @param from        first index to reconstruct
+     * @param to          index after the last pixel to reconstruct
+     */
+    public static void CombineInts(int sharePixels[][], int weights[], int prime, int out[], int from, int to) {
+        CombineInts(sharePixels, weights, prime, from, to, out, from);
+    }
+
+    /**
+     * CombineInts writing the pixels at another index of out
+     *
+     * @param sharePixels int pixels of each share, one array per weight
+     * @param weights     weights from Weights
+     * @param prime       prime field q
+     * @param from        first share index to reconstruct
+     * @param to          share index after the last pixel to reconstruct
+     * @param out         array receiving the reconstructed pixels
+     * @param outFrom     index in out of the pixel at share index from
+     */
+    public static void CombineInts(int sharePixels[][], int weights[], int prime, int from, int to, int out[],
+            int outFrom) {
+        int shares = weights.length;
+
+        if (prime == BinaryField.ORDER) {
+            for (int i = from, o = outFrom; i < to; i++, o++) {
+                int a = 0, r = 0, g = 0, b = 0;
+                for (int s = 0; s < shares; s++) {
+                    int pixel = sharePixels[s][i];
+                    int weight = weights[s];
+                    a ^= BinaryField.Mul(weight, pixel >>> 24);
+                    r ^= BinaryField.Mul(weight, (pixel >> 16) & 0xFF);
+                    g ^= BinaryField.Mul(weight, (pixel >> 8) & 0xFF);
+                    b ^= BinaryField.Mul(weight, pixel & 0xFF);
+                }
+                out[o] = a << 24 | r << 16 | g << 8 | b;
+            }
+            return;
+        }
+
+        PrimeField field = PrimeField.For(prime);
+
+        for (int i = from, o = outFrom; i < to; i++, o++) {
+            int a = 0, r = 0, g = 0, b = 0;
+            for (int s = 0; s < shares; s++) {
+                int pixel = sharePixels[s][i];
+                int weight = weights[s];
+                a += (pixel >>> 24) * weight;
+                r += ((pixel >> 16) & 0xFF) * weight;
+                g += ((pixel >> 8) & 0xFF) * weight;
+                b += (pixel & 0xFF) * weight;
+            }
+            out[o] = field.Reduce(a) << 24 | field.Reduce(r) << 16 | field.Reduce(g) << 8 | field.Reduce(b);
+        }
+    }
+
+    /**
+     * Combine reading the shares from buffers, such as mapped files, with absolute
+     * gets so nothing is copied
+     *
+     * @param shareBytes buffers with each share's bytes
+     * @param weights    weights from Weights
+     * @param prime      prime field q
+     * @param from       first buffer index to reconstruct
+     * @param to         buffer index after the last byte to reconstruct
+     * @param out        array receiving the reconstructed bytes
+     * @param outFrom    index in out of the byte at buffer index from
+     */
+    public static void Combine(ByteBuffer shareBytes[], int weights[], int prime, int from, int to, byte out[],
+            int outFrom) {
+        int shares = weights.length;
+
+        if (prime == BinaryField.ORDER) {
+            for (int i = from, o = outFrom; i < to; i++, o++) {
+                int sum = 0;
+                for (int s = 0; s < shares; s++) {
+                    sum ^= BinaryField.Mul(weights[s], shareBytes[s].get(i) & 0xFF);
+                }
+                out[o] = (byte) sum;
+            }
+            return;
+        }
+
+        PrimeField field = PrimeField.For(prime);
+
+        for (int i = from, o = outFrom; i < to; i++, o++) {
+            int sum = 0;
+            for (int s = 0; s < shares; s++) {
+                sum += (shareBytes[s].get(i) & 0xFF) * weights[s];
+            }
+            out[o] = (byte) field.Reduce(sum);
+        }
+    }
+
+    /**
+     * Removes all cached weights
+     */
+    public static void ClearCache() {
+        weightCache.clear();
+    }
+}
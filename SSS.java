@@ -1,6 +1,13 @@
+import java.awt.Rectangle;
 import java.awt.image.*;
 import java.io.*;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
 
 import javax.imageio.ImageIO;
 
@@ -15,11 +22,95 @@ public class SSS {
     private BufferedImage secretImage; // Secret image to create shares out of
     private Share shareArray[]; // Array holding share images and x value keys
     private int shareKeyX[];
-
-    private int coefficients[][]; // random coefficient values for encrytion function
-    public int primeField; // prime field made public for GUI
+    private byte secretBytes[]; // byte plane of a direct secret image
+    private int secretPixels[]; // int plane or ARGB pixels of the secret, read once per CreateShares
+    private int sharePixels[]; // scratch ARGB pixels reused by shares without a direct layout
+
+    private int coefficients[][]; // random coefficient values for encrytion function, ARRAYS storage
+    private byte flatCoefficients[]; // k - 1 coefficients per block back to back, FLAT storage
+    private long counterSeed; // key of the coefficients derived per block, COUNTER storage
+    private ThreadLocal<ChaCha20Random> counterWords; // keystream words of unseeded COUNTER runs, one reader per thread
+    private CoefficientStorage storage = CoefficientStorage.FLAT; // how the coefficients are held
+    public int primeField; // prime field made public for GUI, BinaryField.ORDER in GF(2^8)
+    private PrimeField field; // arithmetic tables of primeField, null in GF(2^8)
+    private Arithmetic arithmetic = Arithmetic.PRIME; // field the shares are computed in
+    private Backend backend = Backend.VECTOR; // kernels for byte planes
     private Random rng; // random number generator for encryption and value generation
+    private ChaCha20Random drbg; // generator of unseeded runs, band b draws from stream b + 1, null when seeded
     public int k, n; // SSS scheme values. k-1 is the polynomial degree. n is the number of shares
+    private Pipeline pipeline = Pipeline.RASTER; // how pixel bytes are pulled out of images
+    private Evaluation evaluation = Evaluation.TABLE; // how polynomial terms are evaluated
+    private int keyPowers[]; // powers of the key of the share being encrypted
+    private Encoding encoding = Encoding.SINGLE_PASS; // order shares are encrypted in
+    private ForkJoinPool pool; // pool for parallel work, null runs everything on the calling thread
+    private boolean seeded = false; // whether seed was set or ChaCha20 is used
+    private long seed; // seed of rng when seeded
+    private long bandSeeds[]; // seeds of the coefficient streams of each band of block rows
+    private int fixedKeys[]; // keys CreateShares uses instead of drawing them, null to draw
+
+    static final int BAND_BLOCK_ROWS = 16; // rows of 2x2 blocks handled by one task
+    static final int CHUNK_SIZE = 1 << 16; // plane elements handled by one reconstruction or MAE task
+
+    /**
+     * Ways of getting at the bytes of an image. RASTER works on the arrays backing
+     * the image rasters and falls back to CODEC for images without a plain byte
+     * or int layout. CODEC encodes every image to BMP in memory and is kept for
+     * benchmarking against
+     */
+    public enum Pipeline {
+        CODEC, RASTER
+    }
+
+    /**
+     * Ways of evaluating the polynomial terms of a block. POW uses double
+     * precision Math.pow and loses exactness once k grows. HORNER uses integer
+     * Horner's scheme mod q. TABLE uses integer powers of the share key computed
+     * once per share
+     */
+    public enum Evaluation {
+        POW, HORNER, TABLE
+    }
+
+    /**
+     * Fields to share in. PRIME works mod q = 251 and sets bytes above 250 to 250,
+     * so reconstruction is lossy. BINARY works in GF(2^8), where every byte is a
+     * field element and is reconstructed exactly
+     */
+    public enum Arithmetic {
+        PRIME, BINARY
+    }
+
+    /**
+     * Kernels for byte planes. VECTOR uses VectorBackend.AVAILABLE for encryption
+     * and reconstruction when it is loaded and supports the field, and runs the
+     * SCALAR loops otherwise. Both give the same bytes
+     */
+    public enum Backend {
+        SCALAR, VECTOR
+    }
+
+    /**
+     * Ways of holding the random coefficients. ARRAYS keeps an int array per
+     * block. FLAT keeps the same values in one byte array of blocks * (k - 1)
+     * bytes, so both give the same shares. COUNTER stores nothing and derives each
+     * coefficient from its index when its block is encrypted. Seeded runs mix
+     * the seed and index with SplitMix64, which gives different but equally
+     * reproducible shares. Unseeded runs read the index's word of the band's
+     * ChaCha20 stream, so in a prime field they match what FLAT draws
+     */
+    public enum CoefficientStorage {
+        ARRAYS, FLAT, COUNTER
+    }
+
+    /**
+     * Ways of encrypting the shares. PER_SHARE runs EncryptionFunction once for
+     * every share, scanning the secret n times. SINGLE_PASS reads each block of
+     * the secret once and evaluates it for all n keys while it is in cache. Secrets
+     * without a direct layout are always encrypted per share
+     */
+    public enum Encoding {
+        PER_SHARE, SINGLE_PASS
+    }
 
     /**
      * Constructor for SSS
@@ -34,47 +125,463 @@ public class SSS {
         n = numShares;
     }
 
+    /**
+     * Run share creation, reconstruction and MAE on a pool. The secret is split
+     * into bands of block rows that are generated and encrypted as separate tasks.
+     * Reconstruction and MAE split the planes into chunks of CHUNK_SIZE elements
+     * 
+     * @param pool pool to run on, null to run on the calling thread
+     */
+    public void SetParallelism(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Seed the random number generator so CreateShares is reproducible. Every band
+     * draws its coefficients from its own stream split off this seed, so the
+     * shares do not depend on the pool or the number of threads. Without a seed
+     * the keys and coefficients come from ChaCha20 keyed by SecureRandom
+     * 
+     * @param seed seed for keys and coefficients
+     */
+    public void SetSeed(long seed) {
+        this.seed = seed;
+        seeded = true;
+    }
+
+    /**
+     * Create the shares under given keys, such as the keys of another secret's
+     * shares so the two sets can be combined by ShareOperations. Coefficients are
+     * still drawn fresh. Reusing a seed to get the same keys is unsafe, as it
+     * also repeats the coefficients and the difference of two shares under one
+     * key is then the difference of the secrets
+     * 
+     * @param keys n distinct non-zero keys in the field, null to draw them
+     */
+    public void SetKeys(int keys[]) {
+        fixedKeys = keys == null ? null : keys.clone();
+    }
+
+    /**
+     * Choose the field CreateShares computes the shares in
+     * 
+     * @param arithmetic PRIME or BINARY
+     */
+    public void SetArithmetic(Arithmetic arithmetic) {
+        this.arithmetic = arithmetic;
+    }
+
+    /**
+     * Choose the kernels byte planes are encrypted and reconstructed with
+     * 
+     * @param backend SCALAR or VECTOR
+     */
+    public void SetBackend(Backend backend) {
+        this.backend = backend;
+    }
+
+    /**
+     * Choose how CreateShares walks the secret
+     * 
+     * @param encoding PER_SHARE or SINGLE_PASS
+     */
+    public void SetEncoding(Encoding encoding) {
+        this.encoding = encoding;
+    }
+
+    /**
+     * Choose how EncryptionFunction evaluates the polynomial
+     * 
+     * @param evaluation POW, HORNER or TABLE
+     */
+    public void SetEvaluation(Evaluation evaluation) {
+        this.evaluation = evaluation;
+    }
+
+    /**
+     * Choose how CreateShares holds the random coefficients
+     * 
+     * @param storage ARRAYS, FLAT or COUNTER
+     */
+    public void SetCoefficientStorage(CoefficientStorage storage) {
+        this.storage = storage;
+    }
+
+    /**
+     * Choose how DecryptSecret and MeanAverageError read pixel bytes
+     * 
+     * @param pipeline RASTER for direct plane access, CODEC for BMP round-trips
+     */
+    public void SetPipeline(Pipeline pipeline) {
+        this.pipeline = pipeline;
+    }
+
     /* Member initializer methods */
 
     /**
-     * Initiallize the random number generator member
+     * Initiallize the random number generator member. Unseeded runs use ChaCha20
+     * keyed from SecureRandom, with the keys drawn from stream 0 and each band's
+     * coefficients from a stream of its own
      */
     private void InitializeRNG() {
-        // current time in ms for better pseudo-random value
-        long seed = System.currentTimeMillis();
-        rng = new Random(seed);
+        if (seeded) {
+            rng = new Random(seed);
+            drbg = null;
+        } else {
+            drbg = ChaCha20Random.FromSecureRandom();
+            rng = drbg;
+        }
     }
 
     /**
-     * Generate random coefficient values
+     * Generate random coefficient values. Only the memory and the seed of each
+     * band's stream are set up here, FillCoefficients draws the values
      */
     private void GenerateRandomCoefficients() {
+        long start = Metrics.Start();
+        int blocks = secretImage.getWidth() * secretImage.getHeight() / 4;
+        long streamSeed = rng.nextLong();
+        coefficients = null;
+        flatCoefficients = null;
+
         // k-1 coefficients are needed for (k, n) SSS scheme for each byte
-        coefficients = new int[secretImage.getWidth() * secretImage.getHeight() / 4][k - 1];
-        for (int i = 0; i < coefficients.length; i++) {
+        if (storage == CoefficientStorage.ARRAYS) {
+            coefficients = new int[blocks][k - 1];
+        } else if (storage == CoefficientStorage.FLAT) {
+            flatCoefficients = new byte[Math.multiplyExact(blocks, k - 1)];
+        } else {
+            counterSeed = streamSeed;
+            ChaCha20Random words = drbg;
+            counterWords = words == null ? null : ThreadLocal.withInitial(() -> words.Stream(0));
+            Metrics.Stop(Metrics.Phase.COEFFICIENTS, start, 0);
+            return;
+        }
+
+        // streams split off in band order so each band's values only depend on the
+        // seed
+        SplittableRandom bandStreams = new SplittableRandom(streamSeed);
+        bandSeeds = new long[BandCount()];
+        for (int band = 0; band < bandSeeds.length; band++) {
+            bandSeeds[band] = bandStreams.split().nextLong();
+        }
+        Metrics.Stop(Metrics.Phase.COEFFICIENTS, start, 0);
+    }
+
+    /**
+     * Draw the coefficients of the blocks in one band from the band's own stream
+     * 
+     * @param band index of the band
+     */
+    private void FillCoefficients(int band) {
+        if (storage == CoefficientStorage.COUNTER) {
+            return;
+        }
+        long start = Metrics.Start();
+        SplittableRandom random = drbg == null ? new SplittableRandom(bandSeeds[band]) : null;
+        ChaCha20Random stream = drbg == null ? null : drbg.Stream(band + 1);
+        int blocksPerRow = secretImage.getWidth() / 2;
+        int firstBlock = band * BAND_BLOCK_ROWS * blocksPerRow;
+        int lastBlock = Math.min(band * BAND_BLOCK_ROWS + BAND_BLOCK_ROWS, secretImage.getHeight() / 2)
+                * blocksPerRow;
+
+        if (storage == CoefficientStorage.FLAT) {
+            if (stream != null && primeField != BinaryField.ORDER) {
+                stream.FillElements(flatCoefficients, firstBlock * (k - 1), lastBlock * (k - 1), 1, 249);
+            } else if (stream != null) {
+                // every byte first, then a non-zero leading coefficient for each block
+                stream.FillElements(flatCoefficients, firstBlock * (k - 1), lastBlock * (k - 1), 0, 256);
+                for (int i = firstBlock; i < lastBlock; i++) {
+                    flatCoefficients[i * (k - 1) + k - 2] = (byte) stream.NextElement(1, 255);
+                }
+            } else {
+                for (int i = firstBlock * (k - 1); i < lastBlock * (k - 1); i++) {
+                    int j = i % (k - 1);
+                    flatCoefficients[i] = (byte) (random.nextInt(CoefficientCount(j)) + CoefficientLow(j));
+                }
+            }
+            Metrics.Stop(Metrics.Phase.COEFFICIENTS, start, (long) (lastBlock - firstBlock) * (k - 1));
+            return;
+        }
+
+        for (int i = firstBlock; i < lastBlock; i++) {
             for (int j = 0; j < k - 1; j++) {
-                coefficients[i][j] = Modulo.Mod(rng.nextInt(), 249) + 1;
+                coefficients[i][j] = stream != null ? stream.NextElement(CoefficientLow(j), CoefficientCount(j))
+                        : random.nextInt(CoefficientCount(j)) + CoefficientLow(j);
             }
         }
+        Metrics.Stop(Metrics.Phase.COEFFICIENTS, start, (long) (lastBlock - firstBlock) * (k - 1) * Integer.BYTES);
+    }
+
+    /**
+     * Smallest value of coefficient j of a block. Prime fields draw from [1, 249].
+     * In GF(2^8) every byte is an element, so coefficients take all 256 values
+     * and only the leading one, j = k - 2, leaves out 0
+     * 
+     * @param j degree - 1 of the coefficient's term
+     * @return
+     */
+    private int CoefficientLow(int j) {
+        return primeField == BinaryField.ORDER && j < k - 2 ? 0 : 1;
+    }
+
+    /**
+     * Number of values coefficient j of a block is drawn from
+     * 
+     * @param j degree - 1 of the coefficient's term
+     * @return
+     */
+    private int CoefficientCount(int j) {
+        if (primeField != BinaryField.ORDER) {
+            return 249;
+        }
+        return j < k - 2 ? 256 : 255;
+    }
+
+    /**
+     * Coefficients of one block
+     * 
+     * @param block index of the 2x2 block
+     * @param row   k - 1 entries to copy them into unless ARRAYS holds them
+     * @return row, or the block's own array with ARRAYS storage
+     */
+    private int[] BlockCoefficients(int block, int row[]) {
+        if (storage == CoefficientStorage.ARRAYS) {
+            return coefficients[block];
+        }
+
+        int first = block * (k - 1);
+        if (storage == CoefficientStorage.FLAT) {
+            for (int j = 0; j < k - 1; j++) {
+                row[j] = flatCoefficients[first + j] & 0xFF;
+            }
+        } else if (counterWords == null) {
+            for (int j = 0; j < k - 1; j++) {
+                row[j] = CounterCoefficient(counterSeed, (long) first + j, CoefficientLow(j), CoefficientCount(j));
+            }
+        } else {
+            // band b draws from stream b + 1 starting at the band's first block
+            ChaCha20Random words = counterWords.get();
+            int bandBlocks = BAND_BLOCK_ROWS * (secretImage.getWidth() / 2), band = block / bandBlocks;
+            long position = (long) (block - band * bandBlocks) * (k - 1);
+            for (int j = 0; j < k - 1; j++) {
+                row[j] = CoefficientLow(j)
+                        + (int) (((words.WordAt(band + 1, position + j) & 0xFFFFFFFFL) * CoefficientCount(j)) >>> 32);
+            }
+        }
+        return row;
+    }
+
+    /**
+     * Coefficient number index of the secret from a counter. The index is mixed
+     * with the SplitMix64 finalizer and the top bits are scaled into [low, low +
+     * count), so any coefficient can be made without the ones before it
+     * 
+     * @param seed  key of the secret's coefficients
+     * @param index block * (k - 1) + coefficient
+     * @param low   smallest value
+     * @param count number of values
+     * @return
+     */
+    static int CounterCoefficient(long seed, long index, int low, int count) {
+        long z = seed + (index + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z ^= z >>> 31;
+        return low + (int) (((z >>> 32) * count) >>> 32);
+    }
+
+    /**
+     * Number of bands of BAND_BLOCK_ROWS block rows covering the secret
+     * 
+     * @return
+     */
+    private int BandCount() {
+        return (secretImage.getHeight() / 2 + BAND_BLOCK_ROWS - 1) / BAND_BLOCK_ROWS;
+    }
+
+    /**
+     * Number of bytes of the secret's rows covered by a band
+     * 
+     * @param band     band index
+     * @param rowBytes bytes of one row of the secret
+     * @return
+     */
+    private long BandBytes(int band, long rowBytes) {
+        int firstRow = 2 * band * BAND_BLOCK_ROWS;
+        return Math.min(2 * BAND_BLOCK_ROWS, secretImage.getHeight() / 2 * 2 - firstRow) * rowBytes;
+    }
+
+    /**
+     * Run an operation on every band, in parallel on the pool if there is one
+     * 
+     * @param operation operation taking the band index
+     */
+    private void RunBands(IntConsumer operation) {
+        RunTasks(BandCount(), operation);
+    }
+
+    /**
+     * Operation on one chunk of a plane
+     */
+    private interface ChunkOperation {
+        void Run(int chunk, int from, int to);
+    }
+
+    /**
+     * Split [from, to) into chunks of CHUNK_SIZE and run an operation on each,
+     * in parallel on the pool if there is one
+     * 
+     * @param from      first index
+     * @param to        index after the last
+     * @param operation operation taking the chunk number and its range
+     * @return number of chunks
+     */
+    private int RunChunks(int from, int to, ChunkOperation operation) {
+        int chunks = (to - from + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        RunTasks(chunks, chunk -> {
+            int chunkFrom = from + chunk * CHUNK_SIZE;
+            operation.Run(chunk, chunkFrom, Math.min(chunkFrom + CHUNK_SIZE, to));
+        });
+        return chunks;
+    }
+
+    /**
+     * Run an operation on task indices 0 to count - 1
+     * 
+     * @param count     number of tasks
+     * @param operation operation taking the task index
+     */
+    private void RunTasks(int count, IntConsumer operation) {
+        RunTasks(pool, count, operation);
+    }
+
+    /**
+     * Run an operation on task indices 0 to count - 1 on a pool
+     * 
+     * @param pool      pool to run on, null to run on the calling thread
+     * @param count     number of tasks
+     * @param operation operation taking the task index
+     */
+    static void RunTasks(ForkJoinPool pool, int count, IntConsumer operation) {
+        if (pool == null) {
+            for (int task = 0; task < count; task++) {
+                operation.accept(task);
+            }
+        } else {
+            pool.invoke(new SplitTask(operation, 0, count));
+        }
+    }
+
+    /**
+     * Task running an operation on a range of task indices, split in halves until
+     * a single index is left
+     */
+    private static class SplitTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final IntConsumer operation;
+        private final int from, to;
+
+        SplitTask(IntConsumer operation, int from, int to) {
+            this.operation = operation;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                for (int task = from; task < to; task++) {
+                    operation.accept(task);
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new SplitTask(operation, from, middle), new SplitTask(operation, middle, to));
+            }
+        }
+    }
+
+    /**
+     * Sums partial results in chunk order so the total does not depend on which
+     * task finished first
+     * 
+     * @param partials result of each chunk
+     * @return
+     */
+    private static long SumInOrder(long partials[]) {
+        long result = 0;
+        for (long partial : partials) {
+            result += partial;
+        }
+        return result;
     }
 
     /**
      * Randomly generate keys needed for each share
      */
     private void GenerateRandomKeys() {
-        shareKeyX = new int[n]; // n keys are needed for n shares
+        if (fixedKeys == null) {
+            shareKeyX = DrawKeys(rng, n, primeField); // n keys are needed for n shares
+            return;
+        }
+
+        if (fixedKeys.length != n) {
+            throw new IllegalArgumentException(n + " keys are needed, got " + fixedKeys.length);
+        }
+        boolean used[] = new boolean[primeField];
+        used[0] = true;
+        for (int key : fixedKeys) {
+            if (key < 1 || key >= primeField || used[key]) {
+                throw new IllegalArgumentException("Keys must be distinct and in [1, " + (primeField - 1)
+                        + "], got " + key);
+            }
+            used[key] = true;
+        }
+        shareKeyX = fixedKeys.clone();
+    }
+
+    /**
+     * Draws distinct non-zero keys. A repeated key leaves k shares that cannot be
+     * combined, and x = 0 would hand out the secret itself. Draws that hit either
+     * are repeated, so other draws are unchanged
+     * 
+     * @param rng       random number generator to draw from
+     * @param count     number of keys
+     * @param fieldSize number of field elements
+     * @return
+     */
+    static int[] DrawKeys(Random rng, int count, int fieldSize) {
+        if (count > fieldSize - 1) {
+            throw new IllegalArgumentException("A field of " + fieldSize + " elements has room for "
+                    + (fieldSize - 1) + " shares, not " + count);
+        }
 
-        for (int i = 0; i < shareKeyX.length; i++) {
-            shareKeyX[i] = rng.nextInt(primeField);
+        int keys[] = new int[count];
+        boolean used[] = new boolean[fieldSize];
+        used[0] = true;
+        for (int i = 0; i < count; i++) {
+            int key;
+            do {
+                key = rng.nextInt(fieldSize);
+            } while (used[key]);
+            used[key] = true;
+            keys[i] = key;
         }
+        return keys;
     }
 
     /**
      * Choose primeField q to be randomly from list of primes between 0 - 255
      */
     private void GeneratePrimeField() {
+        if (arithmetic == Arithmetic.BINARY) {
+            primeField = BinaryField.ORDER;
+            field = null;
+            return;
+        }
+
         // possible byte values are between 0 and 255
         primeField = 251;// primePixelValues[Math.abs(rng.nextInt()) % primePixelValues.length];
+        field = PrimeField.For(primeField);
     }
 
     /**
@@ -90,94 +597,274 @@ public class SSS {
         GeneratePrimeField();
         GenerateRandomCoefficients();
         GenerateRandomKeys();
+        ReadSecret();
 
-        // create n share images
+        // create n share images and their keys
         for (int i = 0; i < n; i++) {
             // Create key pair in share object
             shareArray[i] = new Share();
 
-            // Create image for share image
-            shareArray[i].shareImage = new BufferedImage(secretImage.getWidth(), secretImage.getHeight(),
-                    secretImage.getType());
+            // Create image for share image with the same pixel layout as the secret
+            if (Planes.IsDirect(secretImage)) {
+                shareArray[i].shareImage = Planes.CreateCompatible(secretImage);
+            } else {
+                shareArray[i].shareImage = new BufferedImage(secretImage.getWidth(), secretImage.getHeight(),
+                        secretImage.getType());
+            }
             shareArray[i].keyX = shareKeyX[i]; // Store x key of share
+        }
+
+        if (encoding == Encoding.SINGLE_PASS && Planes.IsDirect(secretImage)) {
+            // coefficients of a band are drawn right before the band is encrypted
+            EncryptAllShares(shareArray, true);
+        } else {
+            RunBands(this::FillCoefficients);
 
             // Apply secret sharing function with given share and corresponding x key
-            EncryptionFunction(shareArray[i]);
-            // GenerateRandomCoefficients();
+            for (int i = 0; i < n; i++) {
+                EncryptionFunction(shareArray[i]);
+            }
+        }
+    }
+
+    /**
+     * Save the shares created from CreateShares as share container files
+     * 
+     * @param paths one file per share
+     * @throws IOException
+     */
+    public void SaveShares(Path paths[]) throws IOException {
+        for (int i = 0; i < shareArray.length; i++) {
+            ShareFile.Save(shareArray[i], k, n, primeField, paths[i]);
         }
     }
 
     /**
-     * Reconstruct secret image using given shares in parameter (for (2,n) SSS
-     * scheme)
+     * Reconstruct secret image using the first k of the given shares in parameter
+     * (for (k,n) SSS scheme)
      * 
      * @param selectedShares array containing shares used to decrypt
      * @return
      * @throws IOException
      */
     public BufferedImage DecryptSecret(Share selectedShares[]) throws IOException {
-        // Read bytes array from share 1
-        ByteArrayOutputStream bOut = new ByteArrayOutputStream();
-        ImageIO.write(selectedShares[0].shareImage, "bmp", bOut);
-        byte shareBytes0[] = bOut.toByteArray();
-        bOut.close();
-
-        // Read bytes array from share 2
-        bOut = new ByteArrayOutputStream();
-        ImageIO.write(selectedShares[1].shareImage, "bmp", bOut);
-        byte shareBytes1[] = bOut.toByteArray();
-        bOut.close();
-
-        // Stores bytes for reconstructed image
-        byte decryptedBytes[] = new byte[shareBytes0.length];
+        if (selectedShares.length < k) {
+            throw new IllegalArgumentException("At least " + k + " shares are needed to reconstruct, got "
+                    + selectedShares.length);
+        }
 
         // Grab keys for each selected share
-        int key1 = selectedShares[0].keyX;
-        int key2 = selectedShares[1].keyX;
+        int keys[] = new int[k];
+        BufferedImage shareImages[] = new BufferedImage[k];
+        for (int i = 0; i < k; i++) {
+            keys[i] = selectedShares[i].keyX;
+            shareImages[i] = selectedShares[i].shareImage;
+        }
 
-        // temp values for decryption calculation
-        int temp[] = new int[shareBytes0.length];
-        int y1, y2;
+        // LaGrange interpolation y = f(0) = sum yi * prod(-xj / (xi - xj)) mod q with
+        // the weights only computed once for the set of keys
+        long start = Metrics.Start();
+        int weights[] = Reconstructor.Weights(keys, primeField);
 
-        // preserved header
-        for (int i = 0; i < 54; i++) {
-            decryptedBytes[i] = shareBytes0[i];
+        if (pipeline == Pipeline.RASTER && Planes.SameLayout(shareImages)) {
+            BufferedImage decrypted = DecryptPlanes(shareImages, weights);
+            Metrics.Stop(Metrics.Phase.INTERPOLATION, start, k * (Planes.IsBytePlane(decrypted)
+                    ? Planes.Bytes(decrypted).length : 4L * Planes.Ints(decrypted).length));
+            return decrypted;
         }
 
-        for (int i = 54; i < shareBytes0.length; i++) {
-            // Bias negatives by 256 to account for byte values greater than 127
-            y1 = (int) shareBytes0[i] + ((shareBytes0[i] < 0) ? 256 : 0);
-            y2 = (int) shareBytes1[i] + ((shareBytes1[i] < 0) ? 256 : 0);
+        // Read bytes array from each share
+        long codecStart = Metrics.Start();
+        byte shareBytes[][] = new byte[k][];
+        for (int i = 0; i < k; i++) {
+            ByteArrayOutputStream bOut = new ByteArrayOutputStream();
+            ImageIO.write(selectedShares[i].shareImage, "bmp", bOut);
+            shareBytes[i] = bOut.toByteArray();
+            bOut.close();
+        }
+        Metrics.Stop(Metrics.Phase.CODEC, codecStart, (long) k * shareBytes[0].length);
 
-            // LaGrange interpolation y = f(0) = y1(-x2)/(x1 - x2) + y2(-x1)/(x2 - x1) mod q
-            temp[i] = (y1 * (-key2) * Modulo.InverseMod((key1 - key2), primeField)) +
-                    (y2 * (-key1) * Modulo.InverseMod((key2 - key1), primeField));
+        // Stores bytes for reconstructed image
+        byte decryptedBytes[] = new byte[shareBytes[0].length];
 
-            // apply mod q
-            temp[i] = Modulo.Mod(temp[i], primeField);
+        // preserved header
+        for (int i = 0; i < 54; i++) {
+            decryptedBytes[i] = shareBytes[0][i];
+        }
 
-            // account for twos complement
-            if (temp[i] > 127) {
-                // unbias by 256 and negate to avoid faulty casting between bytes and ints
-                temp[i] = 256 - temp[i];
-                decryptedBytes[i] = (byte) temp[i];
-                decryptedBytes[i] *= -1;
+        VectorBackend vectors = Vectors();
+        RunChunks(54, decryptedBytes.length, (chunk, from, to) -> {
+            if (vectors != null) {
+                vectors.Combine(shareBytes, weights, primeField, decryptedBytes, from, to);
             } else {
-                decryptedBytes[i] = (byte) temp[i];
+                Reconstructor.Combine(shareBytes, weights, primeField, decryptedBytes, from, to);
             }
-        }
+        });
+        Metrics.Stop(Metrics.Phase.INTERPOLATION, start, (long) k * shareBytes[0].length);
 
         // Returns image created from byte stream
+        codecStart = Metrics.Start();
         try {
             return ImageIO.read(new ByteArrayInputStream(decryptedBytes));
         } catch (IOException e) {
             e.printStackTrace();
+        } finally {
+            Metrics.Stop(Metrics.Phase.CODEC, codecStart, decryptedBytes.length);
         }
 
         // Return empty image otherwise
         return new BufferedImage(secretImage.getWidth(), secretImage.getHeight(), secretImage.getType(), null);
     }
 
+    /**
+     * Reconstructs the secret straight from the raster planes of the shares
+     * 
+     * @param shareImages share images with identical direct layouts
+     * @param weights     Lagrange weights lined up with shareImages
+     * @return reconstructed image with the same layout as the shares
+     */
+    private BufferedImage DecryptPlanes(BufferedImage shareImages[], int weights[]) {
+        BufferedImage decrypted = Planes.CreateCompatible(shareImages[0]);
+
+        if (Planes.IsBytePlane(decrypted)) {
+            byte sharePlanes[][] = new byte[shareImages.length][];
+            for (int i = 0; i < shareImages.length; i++) {
+                sharePlanes[i] = Planes.Bytes(shareImages[i]);
+            }
+            byte decryptedPlane[] = Planes.Bytes(decrypted);
+            VectorBackend vectors = Vectors();
+            RunChunks(0, decryptedPlane.length, (chunk, from, to) -> {
+                if (vectors != null) {
+                    vectors.Combine(sharePlanes, weights, primeField, decryptedPlane, from, to);
+                } else {
+                    Reconstructor.Combine(sharePlanes, weights, primeField, decryptedPlane, from, to);
+                }
+            });
+        } else {
+            int sharePlanes[][] = new int[shareImages.length][];
+            for (int i = 0; i < shareImages.length; i++) {
+                sharePlanes[i] = Planes.Ints(shareImages[i]);
+            }
+            int decryptedPlane[] = Planes.Ints(decrypted);
+            RunChunks(0, decryptedPlane.length, (chunk, from, to) -> Reconstructor.CombineInts(sharePlanes, weights,
+                    primeField, decryptedPlane, from, to));
+        }
+
+        return decrypted;
+    }
+
+    /**
+     * Reconstructs only a rectangle of the secret from the first k of the given
+     * shares. Shares with identical direct layouts are interpolated row by row
+     * inside the rectangle, others are cropped and go through DecryptSecret
+     *
+     * @param selectedShares array containing shares used to decrypt
+     * @param region         rectangle of the secret in pixels
+     * @return image of the rectangle's size
+     * @throws IOException
+     */
+    public BufferedImage DecryptRegion(Share selectedShares[], Rectangle region) throws IOException {
+        if (selectedShares.length < k) {
+            throw new IllegalArgumentException("At least " + k + " shares are needed to reconstruct, got "
+                    + selectedShares.length);
+        }
+        BufferedImage first = selectedShares[0].shareImage;
+        if (region.isEmpty() || !new Rectangle(first.getWidth(), first.getHeight()).contains(region)) {
+            throw new IllegalArgumentException("Region " + region + " is not inside a " + first.getWidth() + "x"
+                    + first.getHeight() + " image");
+        }
+
+        int keys[] = new int[k];
+        BufferedImage shareImages[] = new BufferedImage[k];
+        for (int i = 0; i < k; i++) {
+            keys[i] = selectedShares[i].keyX;
+            shareImages[i] = selectedShares[i].shareImage;
+        }
+
+        if (!Planes.SameLayout(shareImages)) {
+            Share cropped[] = new Share[k];
+            for (int i = 0; i < k; i++) {
+                cropped[i] = new Share();
+                cropped[i].keyX = keys[i];
+                cropped[i].shareImage = shareImages[i].getSubimage(region.x, region.y, region.width, region.height);
+            }
+            return DecryptSecret(cropped);
+        }
+
+        long start = Metrics.Start();
+        int weights[] = Reconstructor.Weights(keys, primeField);
+        ColorModel colorModel = first.getColorModel();
+        BufferedImage decrypted = new BufferedImage(colorModel,
+                first.getRaster().createCompatibleWritableRaster(region.width, region.height),
+                colorModel.isAlphaPremultiplied(), null);
+
+        boolean bytePlane = Planes.IsBytePlane(decrypted);
+        int stride = bytePlane ? Planes.PixelStride(decrypted) : 1;
+        int rowLength = region.width * stride;
+        byte byteShares[][] = new byte[k][];
+        int intShares[][] = new int[k][];
+        for (int i = 0; i < k; i++) {
+            if (bytePlane) {
+                byteShares[i] = Planes.Bytes(shareImages[i]);
+            } else {
+                intShares[i] = Planes.Ints(shareImages[i]);
+            }
+        }
+
+        // rows of the rectangle are split across the pool, each read only inside it
+        int rowsPerTask = Math.max(1, CHUNK_SIZE / rowLength);
+        RunTasks((region.height + rowsPerTask - 1) / rowsPerTask, task -> {
+            for (int y = task * rowsPerTask; y < Math.min((task + 1) * rowsPerTask, region.height); y++) {
+                int from = ((region.y + y) * first.getWidth() + region.x) * stride;
+                if (bytePlane) {
+                    Reconstructor.Combine(byteShares, weights, primeField, from, from + rowLength,
+                            Planes.Bytes(decrypted), y * rowLength);
+                } else {
+                    Reconstructor.CombineInts(intShares, weights, primeField, from, from + rowLength,
+                            Planes.Ints(decrypted), y * rowLength);
+                }
+            }
+        });
+        Metrics.Stop(Metrics.Phase.INTERPOLATION, start, (long) k * region.height * rowLength * (bytePlane ? 1 : 4));
+        return decrypted;
+    }
+
+    /**
+     * Low resolution preview of the secret. The first k shares are downscaled by
+     * 2 first, which gives shares of the secret downscaled by 2, and only those
+     * are interpolated. Coarser previews downscale that reconstruction further,
+     * since shares downscaled by more than 2 are no longer shares. Each sample is
+     * clamped to q - 1 before averaging, so the preview can differ from a
+     * downscale of the secret where samples reach q
+     *
+     * @param selectedShares array containing shares used to decrypt
+     * @param factor         width and height of the blocks averaged into a
+     *                       pixel, an even number
+     * @return secret downscaled by factor
+     * @throws IOException
+     */
+    public BufferedImage DecryptPreview(Share selectedShares[], int factor) throws IOException {
+        if (selectedShares.length < k) {
+            throw new IllegalArgumentException("At least " + k + " shares are needed to reconstruct, got "
+                    + selectedShares.length);
+        }
+        if (primeField == BinaryField.ORDER) {
+            throw new IllegalStateException("Downscaled shares only reconstruct in a prime field, not GF(2^8)");
+        }
+        if (factor < ShareOperations.SHARE_FACTOR || factor % ShareOperations.SHARE_FACTOR != 0) {
+            throw new IllegalArgumentException("Previews start from shares downscaled by "
+                    + ShareOperations.SHARE_FACTOR + ", factor must be a multiple of it, got " + factor);
+        }
+
+        ShareOperations operations = new ShareOperations(primeField == 0 ? 251 : primeField);
+        operations.SetParallelism(pool);
+        BufferedImage preview = DecryptSecret(operations.Downscale(Arrays.copyOf(selectedShares, k)));
+        if (factor == ShareOperations.SHARE_FACTOR) {
+            return preview;
+        }
+        return operations.Downscale(preview, factor / ShareOperations.SHARE_FACTOR);
+    }
+
     /**
      * Get the shares created from CreateShares
      * 
@@ -188,189 +875,413 @@ public class SSS {
     }
 
     /**
-     * Returns a downscaled version of a given image
+     * Returns a downscaled version of a given image. Every color sample of a 2x2
+     * block is clamped to q - 1 and the four are averaged, which on shares gives
+     * a share of the downscaled secret
      * 
      * @param source desired image for downscaling
      * @return source downscaled by half
      * @throws IOException
      */
     public BufferedImage Downscale(BufferedImage source) throws IOException {
-        int sourceRGB[] = source.getRGB(0, 0, source.getWidth(null), source.getHeight(null), null, 0,
-                source.getWidth(null));
-        int sourcePixelMap[][] = new int[source.getHeight()][source.getWidth()];
-
-        // fill pixel map
-        for (int i = 0, count = 0; i < source.getHeight(); i++) {
-            for (int j = 0; j < source.getWidth(); j++, count++) {
-                sourcePixelMap[i][j] = sourceRGB[count];
+        ShareOperations operations = new ShareOperations(primeField == 0 ? 251 : primeField);
+        operations.SetParallelism(pool);
+        return operations.Downscale(source, 2);
+    }
+
+    /**
+     * Read the secret pixels once so every share is encrypted from the same flat
+     * array
+     */
+    private void ReadSecret() {
+        long start = Metrics.Start();
+        secretBytes = null;
+        secretPixels = null;
+        sharePixels = null;
+
+        if (Planes.IsDirect(secretImage)) {
+            if (Planes.IsBytePlane(secretImage)) {
+                secretBytes = Planes.Bytes(secretImage);
+            } else {
+                secretPixels = Planes.Ints(secretImage);
             }
+        } else {
+            secretPixels = secretImage.getRGB(0, 0, secretImage.getWidth(null), secretImage.getHeight(null), null,
+                    0, secretImage.getWidth(null));
+            sharePixels = new int[secretPixels.length];
         }
+        Metrics.Stop(Metrics.Phase.RASTER_COPY, start, sharePixels == null ? 0 : 4L * secretPixels.length);
+    }
 
-        // downscaling by a factor of two reduces the number of pixels by a scale factor
-        // of 4
-        int[] scaledRGB = new int[sourceRGB.length / 4];
-        long temp = 0;
-
-        for (int i = 0, l = 0; i < source.getHeight() - 1; i += 2) {
-            for (int j = 0; j < source.getWidth() - 1; j += 2, l++) {
-                // Grab a 2x2 grid of pixels
-                long topLeft = (long) sourcePixelMap[i][j]
-                        + ((sourcePixelMap[i][j] < 0) ? (2 * ((long) Integer.MAX_VALUE + 1)) : 0);
-
-                long topRight = (long) sourcePixelMap[i][j + 1]
-                        + ((sourcePixelMap[i][j + 1] < 0) ? (2 * ((long) Integer.MAX_VALUE + 1)) : 0);
-
-                long bottomLeft = (long) sourcePixelMap[i + 1][j]
-                        + ((sourcePixelMap[i + 1][j] < 0) ? (2 * ((long) Integer.MAX_VALUE + 1)) : 0);
-
-                long bottomRight = (long) sourcePixelMap[i + 1][j + 1]
-                        + ((sourcePixelMap[i + 1][j + 1] < 0) ? (2 * ((long) Integer.MAX_VALUE + 1)) : 0);
-
-                // To hold a pixel
-                int tempByte[] = new int[4];
-
-                // Finding average of alpha values
-                tempByte[0] = Modulo.Mod((int) ((((((topLeft >> 24) & 0xff) > 250) ? 250 : ((topLeft >> 24) & 0xff))
-                        + ((((topRight >> 24) & 0xff) > 250) ? 250 : ((topRight >> 24) & 0xff))
-                        + ((((bottomLeft >> 24) & 0xff) > 250) ? 250 : ((bottomLeft >> 24) & 0xff))
-                        + ((((bottomRight >> 24) & 0xff) > 250) ? 250 : ((bottomRight >> 24) & 0xff))) >> 2),
-                        primeField);
-
-                // Finding average of red values
-                tempByte[1] = Modulo.Mod((int) ((((((topLeft >> 16) & 0xff) > 250) ? 250 : ((topLeft >> 16) & 0xff))
-                        + ((((topRight >> 16) & 0xff) > 250) ? 250 : ((topRight >> 16) & 0xff))
-                        + ((((bottomLeft >> 16) & 0xff) > 250) ? 250 : ((bottomLeft >> 16) & 0xff))
-                        + ((((bottomRight >> 16) & 0xff) > 250) ? 250 : ((bottomRight >> 16) & 0xff))) >> 2),
-                        primeField);
-
-                // Finging average of green values
-                tempByte[2] = Modulo.Mod((int) ((((((topLeft >> 8) & 0xff) > 250) ? 250 : ((topLeft >> 8) & 0xff))
-                        + ((((topRight >> 8) & 0xff) > 250) ? 250 : ((topRight >> 8) & 0xff))
-                        + ((((bottomLeft >> 8) & 0xff) > 250) ? 250 : ((bottomLeft >> 8) & 0xff))
-                        + ((((bottomRight >> 8) & 0xff) > 250) ? 250 : ((bottomRight >> 8) & 0xff))) >> 2),
-                        primeField);
-
-                // Finding average of blue values
-                tempByte[3] = Modulo.Mod((int) ((((((topLeft) & 0xff) > 250) ? 250 : ((topLeft) & 0xff))
-                        + ((((topRight) & 0xff) > 250) ? 250 : ((topRight) & 0xff))
-                        + ((((bottomLeft) & 0xff) > 250) ? 250 : ((bottomLeft) & 0xff))
-                        + ((((bottomRight) & 0xff) > 250) ? 250 : ((bottomRight) & 0xff))) >> 2),
-                        primeField);
-
-                // Stitch temp bytes together into an ARGB int
-                temp = ((long) tempByte[0]) << 24 | ((long) tempByte[1]) << 16 | ((long) tempByte[2]) << 8
-                        | (long) tempByte[3];
-
-                // account for twos complement
-                if (temp > Integer.MAX_VALUE) {
-                    // unbias by max value of unsigned int and negate to avoid faulty casting
-                    // between ints and longs
-                    temp = (2 * ((long) Integer.MAX_VALUE + 1)) - temp;
-                    scaledRGB[l] = (int) temp;
-                    scaledRGB[l] *= -1;
-                } else {
-                    scaledRGB[l] = (int) temp;
+    /**
+     * Applies encryption function on secret in a 2x2 pixel block manner to create
+     * share. Every byte of a block uses the coefficients of that block. Nothing is
+     * allocated, the share is written straight into its raster unless the secret
+     * has no direct layout
+     * 
+     * @param share Share containing keyX to create share from
+     */
+    void EncryptionFunction(Share share) {
+        if (evaluation == Evaluation.TABLE) {
+            if (keyPowers == null || keyPowers.length != k - 1) {
+                keyPowers = new int[k - 1];
+            }
+            KeyPowers(share.keyX, keyPowers);
+        }
+
+        long start = Metrics.Start();
+        if (secretBytes != null) {
+            EncryptBytes(secretBytes, Planes.Bytes(share.shareImage), Planes.PixelStride(secretImage), share.keyX,
+                    keyPowers);
+        } else if (sharePixels == null) {
+            EncryptInts(secretPixels, Planes.Ints(share.shareImage), Planes.IntSampleMask(secretImage), share.keyX,
+                    keyPowers);
+        } else {
+            // ARGB pixels from getRGB are encrypted into the scratch array and then
+            // converted into the share
+            EncryptInts(secretPixels, sharePixels, 0xFFFFFFFF, share.keyX, keyPowers);
+            Metrics.Stop(Metrics.Phase.EVALUATION, start, 4L * sharePixels.length);
+
+            start = Metrics.Start();
+            share.shareImage.setRGB(0, 0, secretImage.getWidth(null), secretImage.getHeight(null), sharePixels, 0,
+                    secretImage.getWidth(null));
+            Metrics.Stop(Metrics.Phase.RASTER_COPY, start, 4L * sharePixels.length);
+            return;
+        }
+        Metrics.Stop(Metrics.Phase.EVALUATION, start,
+                secretBytes != null ? secretBytes.length : 4L * secretPixels.length);
+    }
+
+    /**
+     * Fills a table of the powers of a share key in the current field
+     * 
+     * @param keyX   x key of the share
+     * @param powers array of k - 1 entries to fill
+     */
+    private void KeyPowers(int keyX, int powers[]) {
+        if (field == null) {
+            Polynomial.BinaryPowerTable(keyX, k - 1, powers);
+        } else {
+            Polynomial.PowerTable(keyX, k - 1, field, powers);
+        }
+    }
+
+    /**
+     * Vector kernels to use for the current field
+     * 
+     * @return kernels, or null to run the scalar loops
+     */
+    private VectorBackend Vectors() {
+        VectorBackend vectors = VectorBackend.AVAILABLE;
+        return backend == Backend.VECTOR && vectors != null && vectors.Supports(primeField) ? vectors : null;
+    }
+
+    /**
+     * Polynomial terms a1*x + a2*x^2 + ... + a(k-1)*x^(k-1) mod q of a block
+     * 
+     * @param blockCoefficients k - 1 coefficients of the 2x2 block
+     * @param keyX              x key of the share
+     * @param powers            powers of keyX when evaluating with TABLE
+     * @return
+     */
+    private int BlockTerms(int blockCoefficients[], int keyX, int powers[]) {
+        if (field == null) {
+            // POW has no meaning in GF(2^8) and evaluates with TABLE
+            return evaluation == Evaluation.HORNER ? Polynomial.BinaryHorner(blockCoefficients, keyX)
+                    : Polynomial.BinaryTable(blockCoefficients, powers);
+        }
+
+        switch (evaluation) {
+            case POW:
+                return Polynomial.Pow(blockCoefficients, keyX, primeField);
+            case HORNER:
+                return Polynomial.Horner(blockCoefficients, keyX, field);
+            default:
+                return Polynomial.Table(blockCoefficients, powers, field);
+        }
+    }
+
+    /**
+     * Encrypts a byte plane. f(x) = s0 + a1*x + a2*x^2 + ... mod q on every byte
+     * of every 2x2 block
+     * 
+     * @param source      byte plane of the secret
+     * @param target      byte plane of the share
+     * @param pixelStride bytes per pixel
+     * @param keyX        x key of the share
+     * @param powers      powers of keyX when evaluating with TABLE
+     */
+    private void EncryptBytes(byte source[], byte target[], int pixelStride, int keyX, int powers[]) {
+        int width = secretImage.getWidth(), height = secretImage.getHeight();
+        int rowStride = width * pixelStride;
+        int blockStride = 2 * pixelStride; // bytes of one block row inside one image row
+        int maxSecret = primeField - 1; // bytes above the prime field are set to q - 1
+        VectorBackend vectors = Vectors();
+        byte termsRow[] = vectors == null ? null : new byte[width / 2 * blockStride];
+        int row[] = new int[k - 1]; // coefficients of the current block
+
+        for (int i = 0, l = 0; i < height - 1; i += 2) {
+            if (vectors != null) {
+                // spread the terms of each block over its bytes and add them a row at a time
+                for (int b = 0; b < termsRow.length; b += blockStride, l++) {
+                    Arrays.fill(termsRow, b, b + blockStride,
+                            (byte) BlockTerms(BlockCoefficients(l, row), keyX, powers));
+                }
+                vectors.AddTerms(source, i * rowStride, termsRow, target, primeField);
+                vectors.AddTerms(source, (i + 1) * rowStride, termsRow, target, primeField);
+                continue;
+            }
+
+            for (int j = 0; j < width - 1; j += 2, l++) {
+                int terms = BlockTerms(BlockCoefficients(l, row), keyX, powers);
+                int top = i * rowStride + j * pixelStride;
+                int bottom = top + rowStride;
+
+                if (field == null) {
+                    // adding in GF(2^8) is XOR and needs no clamp
+                    for (int b = 0; b < blockStride; b++) {
+                        target[top + b] = (byte) (source[top + b] ^ terms);
+                        target[bottom + b] = (byte) (source[bottom + b] ^ terms);
+                    }
+                    continue;
+                }
+
+                for (int b = 0; b < blockStride; b++) {
+                    int secretTop = source[top + b] & 0xFF;
+                    int secretBottom = source[bottom + b] & 0xFF;
+                    target[top + b] = (byte) field.Add(secretTop > maxSecret ? maxSecret : secretTop, terms);
+                    target[bottom + b] = (byte) field.Add(secretBottom > maxSecret ? maxSecret : secretBottom, terms);
                 }
             }
         }
+    }
 
-        // Apply pixels into image object
-        BufferedImage scaledImage = new BufferedImage(source.getWidth() / 2, source.getHeight() / 2, source.getType());
+    /**
+     * Encrypts an int plane with each byte lane of a pixel treated as a separate
+     * byte of the secret
+     * 
+     * @param source int pixels of the secret
+     * @param target int pixels of the share
+     * @param mask   byte lanes to encrypt, other lanes are left at 0
+     * @param keyX   x key of the share
+     * @param powers powers of keyX when evaluating with TABLE
+     */
+    private void EncryptInts(int source[], int target[], int mask, int keyX, int powers[]) {
+        int width = secretImage.getWidth(), height = secretImage.getHeight();
+        int row[] = new int[k - 1]; // coefficients of the current block
+
+        for (int i = 0, l = 0; i < height - 1; i += 2) {
+            for (int j = 0; j < width - 1; j += 2, l++) {
+                int terms = BlockTerms(BlockCoefficients(l, row), keyX, powers);
+                int top = i * width + j;
+                int bottom = top + width;
+
+                target[top] = EncryptPixel(source[top], terms) & mask;
+                target[top + 1] = EncryptPixel(source[top + 1], terms) & mask;
+                target[bottom] = EncryptPixel(source[bottom], terms) & mask;
+                target[bottom + 1] = EncryptPixel(source[bottom + 1], terms) & mask;
+            }
+        }
+    }
 
-        scaledImage.setRGB(0, 0, scaledImage.getWidth(null), scaledImage.getHeight(null), scaledRGB, 0,
-                scaledImage.getWidth(null));
-        return scaledImage;
+    /**
+     * Encrypts every share in one pass over a direct secret. Each block is read
+     * once and evaluated for all keys before moving on. Bands of block rows run in
+     * parallel when there is a pool
+     * 
+     * @param shares shares with keys and direct images of the secret's layout
+     */
+    void EncryptAllShares(Share shares[]) {
+        EncryptAllShares(shares, false);
     }
 
     /**
-     * Applies encryption function on secret in a 2x2 pixel block manner to create
-     * share
+     * Encrypts every share in one pass over a direct secret
      * 
-     * @param share Share containing keyX to create share from
+     * @param shares           shares with keys and direct images of the secret's
+     *                         layout
+     * @param fillCoefficients draw each band's coefficients before encrypting it
      */
-    private void EncryptionFunction(Share share) {
-        int secretRGB[] = secretImage.getRGB(0, 0, secretImage.getWidth(null), secretImage.getHeight(null), null, 0,
-                secretImage.getWidth(null));
-        int secretPixelMap[][] = new int[secretImage.getHeight()][secretImage.getWidth()];
+    private void EncryptAllShares(Share shares[], boolean fillCoefficients) {
+        int keys[] = new int[shares.length];
+        int powers[][] = new int[shares.length][k - 1];
+        for (int s = 0; s < shares.length; s++) {
+            keys[s] = shares[s].keyX;
+            KeyPowers(keys[s], powers[s]);
+        }
 
-        // fill pixel map
-        for (int i = 0, count = 0; i < secretImage.getHeight(); i++) {
-            for (int j = 0; j < secretImage.getWidth(); j++, count++) {
-                secretPixelMap[i][j] = secretRGB[count];
+        if (secretBytes != null) {
+            byte targets[][] = new byte[shares.length][];
+            for (int s = 0; s < shares.length; s++) {
+                targets[s] = Planes.Bytes(shares[s].shareImage);
+            }
+            int pixelStride = Planes.PixelStride(secretImage);
+            RunBands(band -> {
+                if (fillCoefficients) {
+                    FillCoefficients(band);
+                }
+                long start = Metrics.Start();
+                EncryptBytesAllShares(secretBytes, targets, pixelStride, keys, powers, band);
+                Metrics.Stop(Metrics.Phase.EVALUATION, start,
+                        BandBytes(band, (long) secretImage.getWidth() * pixelStride) * shares.length);
+            });
+        } else {
+            int targets[][] = new int[shares.length][];
+            for (int s = 0; s < shares.length; s++) {
+                targets[s] = Planes.Ints(shares[s].shareImage);
             }
+            int mask = Planes.IntSampleMask(secretImage);
+            RunBands(band -> {
+                if (fillCoefficients) {
+                    FillCoefficients(band);
+                }
+                long start = Metrics.Start();
+                EncryptIntsAllShares(secretPixels, targets, mask, keys, powers, band);
+                Metrics.Stop(Metrics.Phase.EVALUATION, start,
+                        BandBytes(band, 4L * secretImage.getWidth()) * shares.length);
+            });
         }
+    }
+
+    /**
+     * Encrypts the block rows of one band of a byte plane into every share
+     * 
+     * @param source      byte plane of the secret
+     * @param targets     byte planes of the shares
+     * @param pixelStride bytes per pixel
+     * @param keys        x keys lined up with targets
+     * @param powers      powers of each key when evaluating with TABLE
+     * @param band        index of the band
+     */
+    private void EncryptBytesAllShares(byte source[], byte targets[][], int pixelStride, int keys[],
+            int powers[][], int band) {
+        int width = secretImage.getWidth();
+        int rowStride = width * pixelStride;
+        int blockStride = 2 * pixelStride;
+        int maxSecret = primeField - 1;
+        int shares = targets.length;
+        int terms[] = new int[shares]; // polynomial terms of the current block for each share
+        int firstRow = 2 * band * BAND_BLOCK_ROWS;
+        int endRow = Math.min(firstRow + 2 * BAND_BLOCK_ROWS, secretImage.getHeight() - 1);
+        VectorBackend vectors = Vectors();
+        byte termRows[][] = vectors == null ? null : new byte[shares][width / 2 * blockStride];
+        int row[] = new int[k - 1]; // coefficients of the current block
+
+        for (int i = firstRow, l = band * BAND_BLOCK_ROWS * (width / 2); i < endRow; i += 2) {
+            if (vectors != null) {
+                for (int b = 0; b < termRows[0].length; b += blockStride, l++) {
+                    int blockCoefficients[] = BlockCoefficients(l, row);
+                    for (int s = 0; s < shares; s++) {
+                        Arrays.fill(termRows[s], b, b + blockStride,
+                                (byte) BlockTerms(blockCoefficients, keys[s], powers[s]));
+                    }
+                }
+                // both rows of the block row are still in cache while every share is written
+                for (int s = 0; s < shares; s++) {
+                    vectors.AddTerms(source, i * rowStride, termRows[s], targets[s], primeField);
+                    vectors.AddTerms(source, (i + 1) * rowStride, termRows[s], targets[s], primeField);
+                }
+                continue;
+            }
 
-        int sharePixelMap[][] = new int[secretImage.getHeight()][secretImage.getWidth()];
-        int[] shareRGB = new int[secretRGB.length];
-
-        for (int i = 0, l = 0; i < secretImage.getHeight() - 1; i += 2) {
-            for (int j = 0; j < secretImage.getWidth() - 1; j += 2, l++) {
-                // Getting the 2x2 pixel values as long value usable for calculations
-                long tempPixelBlock[][] = new long[2][2];
-                tempPixelBlock[0][0] = (long) secretPixelMap[i][j]
-                        + ((secretPixelMap[i][j] < 0) ? (2 * ((long) Integer.MAX_VALUE + 1)) : 0);
-                tempPixelBlock[0][1] = (long) secretPixelMap[i][j + 1]
-                        + ((secretPixelMap[i][j + 1] < 0) ? (2 * ((long) Integer.MAX_VALUE + 1)) : 0);
-                tempPixelBlock[1][0] = (long) secretPixelMap[i + 1][j]
-                        + ((secretPixelMap[i + 1][j] < 0) ? (2 * ((long) Integer.MAX_VALUE + 1)) : 0);
-                tempPixelBlock[1][1] = (long) secretPixelMap[i + 1][j + 1]
-                        + ((secretPixelMap[i + 1][j + 1] < 0) ? (2 * ((long) Integer.MAX_VALUE + 1)) : 0);
-
-                long tempByte[] = new long[4];
-                // f(x) = s0 + a1*x + a2*x^2 + ... mod q on all pixels in block
-                for (int m = 0; m < 2; m++) { // encrypt function
-                    for (int p = 0; p < 2; p++) {
-                        tempByte[0] = (tempPixelBlock[m][p] >> 24) & 0xFF;// A byte
-                        tempByte[1] = (tempPixelBlock[m][p] >> 16) & 0xFF;// R byte
-                        tempByte[2] = (tempPixelBlock[m][p] >> 8) & 0xFF; // G byte
-                        tempByte[3] = (tempPixelBlock[m][p]) & 0xFF; // B byte
-
-                        // Set any pixel above the prime field to 250 to fit in encryption range
-                        for (int q = 0; q < 4; q++) {
-                            if (tempByte[q] > 250) {
-                                tempByte[q] = 250;
-                            }
-
-                            // Apply encrytion function to all pixel bytes
-                            for (int r = 1; r < k; r++) {
-                                tempByte[q] += (coefficients[l][r - 1] * Math.pow(share.keyX, r));
-                            }
-
-                            // Masked to positive value so no need to account for negative mod
-                            tempByte[q] %= primeField;
-
-                            // Stitch bytes together
-                            tempPixelBlock[m][p] = tempByte[0] << 24 | tempByte[1] << 16 | tempByte[2] << 8
-                                    | tempByte[3];
-
-                            // fill in share pixels
-                            if (tempPixelBlock[m][p] > Integer.MAX_VALUE) {
-                                tempPixelBlock[m][p] = (2 * ((long) Integer.MAX_VALUE + 1)) - tempPixelBlock[0][0];
-                                sharePixelMap[i + m][j + p] = (int) tempPixelBlock[0][0];
-                                sharePixelMap[i + m][j + p] *= -1;
-                            } else {
-                                sharePixelMap[i + m][j + p] = (int) tempPixelBlock[0][0];
-                            }
+            for (int j = 0; j < width - 1; j += 2, l++) {
+                int blockCoefficients[] = BlockCoefficients(l, row);
+                for (int s = 0; s < shares; s++) {
+                    terms[s] = BlockTerms(blockCoefficients, keys[s], powers[s]);
+                }
+                int top = i * rowStride + j * pixelStride;
+                int bottom = top + rowStride;
+
+                // the block's bytes stay in L1 while they are written to every share
+                for (int s = 0; s < shares; s++) {
+                    byte target[] = targets[s];
+                    int shareTerms = terms[s];
+
+                    if (field == null) {
+                        for (int b = 0; b < blockStride; b++) {
+                            target[top + b] = (byte) (source[top + b] ^ shareTerms);
+                            target[bottom + b] = (byte) (source[bottom + b] ^ shareTerms);
                         }
+                        continue;
+                    }
+
+                    for (int b = 0; b < blockStride; b++) {
+                        int secretTop = source[top + b] & 0xFF;
+                        int secretBottom = source[bottom + b] & 0xFF;
+                        target[top + b] = (byte) field.Add(secretTop > maxSecret ? maxSecret : secretTop, shareTerms);
+                        target[bottom + b] = (byte) field.Add(secretBottom > maxSecret ? maxSecret : secretBottom,
+                                shareTerms);
                     }
                 }
             }
         }
+    }
 
-        // fill pixel map
-        for (int i = 0, count = 0; i < secretImage.getHeight(); i++) {
-            for (int j = 0; j < secretImage.getWidth(); j++, count++) {
-                shareRGB[count] = sharePixelMap[i][j];
+    /**
+     * Encrypts the block rows of one band of an int plane into every share
+     * 
+     * @param source  int pixels of the secret
+     * @param targets int pixels of the shares
+     * @param mask    byte lanes to encrypt, other lanes are left at 0
+     * @param keys    x keys lined up with targets
+     * @param powers  powers of each key when evaluating with TABLE
+     * @param band    index of the band
+     */
+    private void EncryptIntsAllShares(int source[], int targets[][], int mask, int keys[], int powers[][],
+            int band) {
+        int width = secretImage.getWidth();
+        int shares = targets.length;
+        int firstRow = 2 * band * BAND_BLOCK_ROWS;
+        int endRow = Math.min(firstRow + 2 * BAND_BLOCK_ROWS, secretImage.getHeight() - 1);
+        int row[] = new int[k - 1]; // coefficients of the current block
+
+        for (int i = firstRow, l = band * BAND_BLOCK_ROWS * (width / 2); i < endRow; i += 2) {
+            for (int j = 0; j < width - 1; j += 2, l++) {
+                int blockCoefficients[] = BlockCoefficients(l, row);
+                int top = i * width + j;
+                int bottom = top + width;
+                int topLeft = source[top], topRight = source[top + 1];
+                int bottomLeft = source[bottom], bottomRight = source[bottom + 1];
+
+                for (int s = 0; s < shares; s++) {
+                    int terms = BlockTerms(blockCoefficients, keys[s], powers[s]);
+                    int target[] = targets[s];
+                    target[top] = EncryptPixel(topLeft, terms) & mask;
+                    target[top + 1] = EncryptPixel(topRight, terms) & mask;
+                    target[bottom] = EncryptPixel(bottomLeft, terms) & mask;
+                    target[bottom + 1] = EncryptPixel(bottomRight, terms) & mask;
+                }
             }
         }
+    }
 
-        share.shareImage.setRGB(0, 0, secretImage.getWidth(null), secretImage.getHeight(null), shareRGB, 0,
-                secretImage.getWidth(null));
+    /**
+     * Encrypts the four bytes of an int pixel
+     * 
+     * @param pixel secret pixel
+     * @param terms polynomial terms of the block the pixel is in
+     * @return share pixel
+     */
+    private int EncryptPixel(int pixel, int terms) {
+        if (field == null) {
+            // XOR the terms into all four byte lanes at once
+            return pixel ^ terms * 0x01010101;
+        }
+
+        int maxSecret = primeField - 1;
+        int a = pixel >>> 24, r = (pixel >> 16) & 0xFF, g = (pixel >> 8) & 0xFF, b = pixel & 0xFF;
 
+        return field.Add(a > maxSecret ? maxSecret : a, terms) << 24
+                | field.Add(r > maxSecret ? maxSecret : r, terms) << 16
+                | field.Add(g > maxSecret ? maxSecret : g, terms) << 8
+                | field.Add(b > maxSecret ? maxSecret : b, terms);
     }
 
     /**
-     * Calculates the MAE between a secret image and its decrypted version
+     * Calculates the MAE between a secret image and its decrypted version. Both
+     * images are read as BMP streams cut into 4 byte groups, and the absolute
+     * differences of the groups as big-endian ints are summed. The raster
+     * pipeline lays the planes out as the BMP pixel data and gives the same sum
      * 
      * @param secret
      * @param decrypted
@@ -378,6 +1289,14 @@ public class SSS {
      * @throws IOException
      */
     public long MeanAverageError(BufferedImage secret, BufferedImage decrypted) throws IOException {
+        long start = Metrics.Start();
+        if (pipeline == Pipeline.RASTER && Planes.SameLayout(secret, decrypted)) {
+            long result = MeanAverageErrorPlanes(secret, decrypted);
+            Metrics.Stop(Metrics.Phase.MAE, start, 2 * (Planes.IsBytePlane(secret) ? Planes.Bytes(secret).length
+                    : 4L * Planes.Ints(secret).length));
+            return result;
+        }
+
         // Write bytes of bmp file to stream and stores in an array
         // ByteArrayOutputStream bOut = new ByteArrayOutputStream();
         // ImageIO.write(secret, "bmp", bOut);
@@ -398,6 +1317,7 @@ public class SSS {
         // return result;
         // }
         // Bytes of secret image
+        long codecStart = Metrics.Start();
         ByteArrayOutputStream bOut = new ByteArrayOutputStream();
         ImageIO.write(secret, "bmp", bOut);
         byte secretBytes[] = bOut.toByteArray();
@@ -408,13 +1328,35 @@ public class SSS {
         ImageIO.write(decrypted, "bmp", bOut);
         byte decryptedBytes[] = bOut.toByteArray();
         bOut.close();
+        Metrics.Stop(Metrics.Phase.CODEC, codecStart, secretBytes.length + decryptedBytes.length);
+
+        // chunks start at multiples of 4 so the 4 byte groups stay the same
+        long partials[] = new long[(secretBytes.length + CHUNK_SIZE - 1) / CHUNK_SIZE];
+        RunChunks(0, secretBytes.length, (chunk, from, to) -> partials[chunk] = MeanAverageErrorBytes(secretBytes,
+                decryptedBytes, from, Math.min(to, secretBytes.length - 4)));
+
+        long result = SumInOrder(partials);
+        Metrics.Stop(Metrics.Phase.MAE, start, secretBytes.length + decryptedBytes.length);
+        return result;
+    }
 
+    /**
+     * Accumulates the error of the 4 byte groups starting in [from, to) of two BMP
+     * byte streams
+     * 
+     * @param secretBytes
+     * @param decryptedBytes
+     * @param from
+     * @param to
+     * @return
+     */
+    private static long MeanAverageErrorBytes(byte secretBytes[], byte decryptedBytes[], int from, int to) {
         long result = 0;
 
         //temp values for colors
         int secretA, secretR, secretG, secretB,
                 decA, decR, decG, decB;
-        for (int i = 0; i < secretBytes.length - 4; i += 4) {
+        for (int i = from; i < to; i += 4) {
             //Get pixel values for one pixel from secret
             secretA = (int) secretBytes[i] + ((secretBytes[i] < 0) ? 256 : 0);
             secretR = (int) secretBytes[i + 1] + ((secretBytes[i + 1] < 0) ? 256 : 0);
@@ -442,4 +1384,102 @@ public class SSS {
         return result;
     }
 
+    /**
+     * MeanAverageError over the planes of two images with the same direct
+     * layout. The planes are laid out as the pixel data of their BMP streams, and
+     * the groups are taken at the same offsets as in the streams
+     * 
+     * @param secret
+     * @param decrypted
+     * @return
+     */
+    private long MeanAverageErrorPlanes(BufferedImage secret, BufferedImage decrypted) {
+        // the BMP writer takes no images with alpha, the codec path then compares two empty streams
+        if (secret.getColorModel().hasAlpha() || decrypted.getColorModel().hasAlpha()) {
+            return 0;
+        }
+
+        byte secretData[] = BmpPixelData(secret);
+        byte decryptedData[] = BmpPixelData(decrypted);
+        // gray images are written with 8 bits per pixel and a palette of 256 colors
+        int header = Planes.IsBytePlane(secret) && Planes.PixelStride(secret) == 1 ? 54 + 1024 : 54;
+
+        // groups lying in the headers add nothing, as the headers are equal
+        int first = header & ~3, last = header + secretData.length - 4;
+        long partials[] = new long[Math.max(0, (last - first + CHUNK_SIZE - 1) / CHUNK_SIZE)];
+        RunChunks(first, last, (chunk, from, to) -> partials[chunk] = MeanAverageErrorGroups(secretData,
+                decryptedData, header, from, to));
+
+        return SumInOrder(partials);
+    }
+
+    /**
+     * Accumulates the error of the 4 byte groups starting in [from, to) of two BMP
+     * streams given by their pixel data. Header bytes are equal in both streams
+     * and read as 0, which leaves the difference of a group unchanged
+     * 
+     * @param secretData     BMP pixel data of the secret
+     * @param decryptedData  BMP pixel data of the decrypted image
+     * @param header         bytes in front of the pixel data in the streams
+     * @param from           stream offset of the first group, a multiple of 4
+     * @param to             stream offset after the last group
+     * @return
+     */
+    private static long MeanAverageErrorGroups(byte secretData[], byte decryptedData[], int header, int from,
+            int to) {
+        long result = 0;
+        for (int i = from; i < to; i += 4) {
+            int secretPixel = 0, decPixel = 0;
+            for (int j = i - header; j < i - header + 4; j++) {
+                secretPixel = secretPixel << 8 | (j < 0 ? 0 : secretData[j] & 0xFF);
+                decPixel = decPixel << 8 | (j < 0 ? 0 : decryptedData[j] & 0xFF);
+            }
+            result += Math.abs((long) secretPixel - decPixel);
+        }
+        return result;
+    }
+
+    /**
+     * Lays the planes of a direct image without alpha out as the pixel data
+     * ImageIO writes to BMP: rows bottom up, blue, green and red samples or one
+     * gray sample per pixel, each row padded to 4 bytes
+     * 
+     * @param image
+     * @return
+     */
+    private byte[] BmpPixelData(BufferedImage image) {
+        int width = image.getWidth(), height = image.getHeight();
+        int samples = Planes.IsBytePlane(image) ? Planes.PixelStride(image) : 3;
+        int rowBytes = (width * samples + 3) & ~3;
+        byte data[] = new byte[rowBytes * height];
+
+        if (Planes.IsBytePlane(image)) {
+            byte plane[] = Planes.Bytes(image);
+            // BMP stores the bands from the last to the first
+            int offsets[] = ((PixelInterleavedSampleModel) image.getRaster().getSampleModel()).getBandOffsets();
+            RunTasks(height, y -> {
+                int row = (height - 1 - y) * rowBytes, pixel = y * width * samples;
+                for (int x = 0; x < width * samples; x += samples) {
+                    for (int j = 0; j < samples; j++) {
+                        data[row + x + j] = plane[pixel + x + offsets[samples - 1 - j]];
+                    }
+                }
+            });
+        } else {
+            int plane[] = Planes.Ints(image);
+            DirectColorModel model = (DirectColorModel) image.getColorModel();
+            int masks[] = { model.getBlueMask(), model.getGreenMask(), model.getRedMask() };
+            RunTasks(height, y -> {
+                int row = (height - 1 - y) * rowBytes;
+                for (int x = 0; x < width; x++) {
+                    int pixel = plane[y * width + x];
+                    for (int j = 0; j < 3; j++) {
+                        data[row + 3 * x + j] = (byte) ((pixel & masks[j]) >>> Integer.numberOfTrailingZeros(masks[j]));
+                    }
+                }
+            });
+        }
+        return data;
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,609 @@
+import java.awt.Rectangle;
+import java.awt.image.*;
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import javax.imageio.ImageIO;
+
+/**
+ * @author My Tran
+ * @version 1.0
+ * @description Timing harness for SSS operations. Run with an optional path to
+ *              a BMP image, secret.bmp in the working directory otherwise
+ */
+public class SSSBenchmark {
+    static final int WARMUP = 5; // untimed runs to let the JIT compile the hot loops
+    static final int RUNS = 20; // timed runs averaged for each result
+    static volatile int sink; // results of arithmetic loops go here so the JIT keeps them
+
+    /**
+     * Interface for an operation being timed
+     */
+    interface Operation {
+        void Run() throws IOException;
+    }
+
+    /**
+     * Average time of an operation in milliseconds
+     *
+     * @param operation operation to time
+     * @return
+     * @throws IOException
+     */
+    static double Time(Operation operation) throws IOException {
+        for (int i = 0; i < WARMUP; i++) {
+            operation.Run();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            operation.Run();
+        }
+        return (System.nanoTime() - start) / (RUNS * 1e6);
+    }
+
+    /**
+     * Compares the BMP codec pipeline with direct raster access
+     *
+     * @param secretImage image to share
+     * @throws IOException
+     */
+    static void ComparePipelines(BufferedImage secretImage) throws IOException {
+        SSS secretSharing = new SSS(secretImage, 2, 5);
+        secretSharing.CreateShares();
+        Share shares[] = secretSharing.GetShares();
+
+        System.out.println("Pipeline comparison (k = 2, n = 5)");
+        for (SSS.Pipeline pipeline : SSS.Pipeline.values()) {
+            secretSharing.SetPipeline(pipeline);
+            BufferedImage decrypted = secretSharing.DecryptSecret(shares);
+
+            System.out.printf("%-8s DecryptSecret: %8.3f ms\tMeanAverageError: %8.3f ms%n", pipeline,
+                    Time(() -> secretSharing.DecryptSecret(shares)),
+                    Time(() -> secretSharing.MeanAverageError(secretImage, decrypted)));
+        }
+    }
+
+    /**
+     * Bytes allocated by the current thread so far
+     *
+     * @return
+     */
+    static long AllocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Measures heap allocation of the share encryption loop per megapixel of
+     * secret and share. Setup such as share images and coefficients is excluded
+     *
+     * @param secretImage image to share
+     * @throws IOException
+     */
+    static void MeasureEncryptionAllocation(BufferedImage secretImage) throws IOException {
+        SSS secretSharing = new SSS(secretImage, 2, 5);
+        secretSharing.CreateShares();
+        Share shares[] = secretSharing.GetShares();
+        double megapixels = secretImage.getWidth() * (double) secretImage.getHeight() / 1e6;
+
+        // warm up so the measured runs are compiled code
+        for (int i = 0; i < WARMUP; i++) {
+            for (Share share : shares) {
+                secretSharing.EncryptionFunction(share);
+            }
+        }
+
+        long before = AllocatedBytes();
+        for (int i = 0; i < RUNS; i++) {
+            for (Share share : shares) {
+                secretSharing.EncryptionFunction(share);
+            }
+        }
+        long allocated = AllocatedBytes() - before;
+
+        System.out.printf("EncryptionFunction allocation: %.1f bytes per megapixel per share%n",
+                allocated / (megapixels * RUNS * shares.length));
+
+        before = AllocatedBytes();
+        secretSharing.CreateShares();
+        System.out.printf("CreateShares allocation (share images, coefficients, keys): %.1f bytes per megapixel%n",
+                (AllocatedBytes() - before) / megapixels);
+    }
+
+    /**
+     * Compares the ways of holding coefficients by CreateShares time and bytes
+     * allocated per megapixel, shares included
+     *
+     * @param secretImage image to share
+     * @throws IOException
+     */
+    static void CompareCoefficientStorage(BufferedImage secretImage) throws IOException {
+        double megapixels = secretImage.getWidth() * (double) secretImage.getHeight() / 1e6;
+        System.out.println("Coefficient storage, n = 5 (CreateShares ms, MB allocated per megapixel)");
+        System.out.printf("%3s%10s%18s%18s%n", "k", "storage", "ms", "MB/MP");
+
+        for (int k : new int[] { 2, 8, 32 }) {
+            for (SSS.CoefficientStorage storage : SSS.CoefficientStorage.values()) {
+                SSS secretSharing = new SSS(secretImage, k, 5);
+                secretSharing.SetCoefficientStorage(storage);
+                double time = Time(secretSharing::CreateShares);
+                long before = AllocatedBytes();
+                secretSharing.CreateShares();
+                System.out.printf("%3d%10s%18.3f%18.2f%n", k, storage, time,
+                        (AllocatedBytes() - before) / megapixels / 1e6);
+            }
+        }
+    }
+
+    /**
+     * Compares the ways of evaluating the polynomial for thresholds k = 2 to 16
+     *
+     * @param secretImage image to share
+     * @throws IOException
+     */
+    static void CompareEvaluations(BufferedImage secretImage) throws IOException {
+        System.out.println("EncryptionFunction per share (ms)");
+        System.out.print(" k");
+        for (SSS.Evaluation evaluation : SSS.Evaluation.values()) {
+            System.out.printf("%10s", evaluation);
+        }
+        System.out.println();
+
+        for (int k = 2; k <= 16; k++) {
+            SSS secretSharing = new SSS(secretImage, k, 16);
+            secretSharing.CreateShares();
+            Share share = secretSharing.GetShares()[0];
+
+            System.out.printf("%2d", k);
+            for (SSS.Evaluation evaluation : SSS.Evaluation.values()) {
+                secretSharing.SetEvaluation(evaluation);
+                System.out.printf("%10.3f", Time(() -> secretSharing.EncryptionFunction(share)));
+            }
+            System.out.println();
+        }
+    }
+
+    /**
+     * Compares sharing mod 251 with sharing in GF(2^8), with the MAE of the
+     * reconstruction showing what the clamp to 250 loses
+     *
+     * @param secretImage image to share
+     * @throws IOException
+     */
+    static void CompareArithmetic(BufferedImage secretImage) throws IOException {
+        System.out.println("Arithmetic, k = 3, n = 5 (ms)");
+        System.out.printf("%8s%14s%14s%8s%n", "field", "CreateShares", "DecryptSecret", "MAE");
+
+        for (SSS.Arithmetic arithmetic : SSS.Arithmetic.values()) {
+            SSS secretSharing = new SSS(secretImage, 3, 5);
+            secretSharing.SetArithmetic(arithmetic);
+            secretSharing.SetSeed(0);
+            double create = Time(secretSharing::CreateShares);
+            Share shares[] = secretSharing.GetShares();
+            double decrypt = Time(() -> secretSharing.DecryptSecret(shares));
+            System.out.printf("%8s%14.3f%14.3f%8d%n", arithmetic, create, decrypt,
+                    secretSharing.MeanAverageError(secretImage, secretSharing.DecryptSecret(shares)));
+        }
+    }
+
+    /**
+     * Compares the scalar loops with the vector kernels for both fields. The
+     * vector kernels are only used when the JVM runs with --add-modules
+     * jdk.incubator.vector and vector/VectorKernels.java is compiled
+     *
+     * @param secretImage image to share
+     * @throws IOException
+     */
+    static void CompareBackends(BufferedImage secretImage) throws IOException {
+        VectorBackend vectors = VectorBackend.AVAILABLE;
+        System.out.println("Backends, k = 3, n = 5 (ms), "
+                + (vectors == null ? "vector kernels not loaded" : vectors.Lanes() + " byte lanes"));
+        System.out.printf("%8s%8s%14s%14s%n", "field", "backend", "CreateShares", "DecryptSecret");
+
+        for (SSS.Arithmetic arithmetic : SSS.Arithmetic.values()) {
+            for (SSS.Backend backend : SSS.Backend.values()) {
+                SSS secretSharing = new SSS(secretImage, 3, 5);
+                secretSharing.SetArithmetic(arithmetic);
+                secretSharing.SetBackend(backend);
+                secretSharing.SetSeed(0);
+                double create = Time(secretSharing::CreateShares);
+                Share shares[] = secretSharing.GetShares();
+                System.out.printf("%8s%8s%14.3f%14.3f%n", arithmetic, backend, create,
+                        Time(() -> secretSharing.DecryptSecret(shares)));
+            }
+        }
+    }
+
+    /**
+     * Compares encrypting share by share with encrypting every share in one pass
+     * over the secret as the number of shares grows
+     *
+     * @param secretImage image to share
+     * @throws IOException
+     */
+    static void CompareEncodings(BufferedImage secretImage) throws IOException {
+        System.out.println("Encrypting all shares, k = 2 (ms)");
+        System.out.printf("%3s%12s%12s%n", "n", "PER_SHARE", "SINGLE_PASS");
+
+        for (int n : new int[] { 2, 5, 10, 20 }) {
+            SSS secretSharing = new SSS(secretImage, 2, n);
+            secretSharing.CreateShares();
+            Share shares[] = secretSharing.GetShares();
+
+            System.out.printf("%3d%12.3f%12.3f%n", n, Time(() -> {
+                for (Share share : shares) {
+                    secretSharing.EncryptionFunction(share);
+                }
+            }), Time(() -> secretSharing.EncryptAllShares(shares)));
+        }
+    }
+
+    /**
+     * Times CreateShares, DecryptSecret and MeanAverageError without a pool and
+     * on pools of 1 thread up to twice the available processors
+     *
+     * @param secretImage image to share
+     * @throws IOException
+     */
+    static void CompareParallelism(BufferedImage secretImage) throws IOException {
+        System.out.println("Parallelism, k = 2, n = 5 (ms)");
+        System.out.printf("%8s%14s%14s%18s%n", "threads", "CreateShares", "DecryptSecret", "MeanAverageError");
+
+        SSS secretSharing = new SSS(secretImage, 2, 5);
+        secretSharing.SetSeed(0);
+        secretSharing.CreateShares();
+        Share shares[] = secretSharing.GetShares();
+        BufferedImage decrypted = secretSharing.DecryptSecret(shares);
+
+        for (int threads = 0; threads <= 2 * Runtime.getRuntime().availableProcessors(); threads =
+                Math.max(1, 2 * threads)) {
+            ForkJoinPool pool = threads == 0 ? null : new ForkJoinPool(threads);
+            secretSharing.SetParallelism(pool);
+            System.out.printf("%8s%14.3f%14.3f%18.3f%n", threads == 0 ? "none" : threads,
+                    Time(secretSharing::CreateShares),
+                    Time(() -> secretSharing.DecryptSecret(shares)),
+                    Time(() -> secretSharing.MeanAverageError(secretImage, decrypted)));
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Compares Modulo with the table arithmetic of PrimeField on a million random
+     * operands for q = 251
+     *
+     * @throws IOException
+     */
+    static void CompareFieldArithmetic() throws IOException {
+        int prime = 251, count = 1 << 20;
+        PrimeField field = PrimeField.For(prime);
+        Random random = new Random(0);
+        int a[] = new int[count], b[] = new int[count], sums[] = new int[count], signed[] = new int[count];
+        for (int i = 0; i < count; i++) {
+            a[i] = random.nextInt(prime - 1) + 1;
+            b[i] = random.nextInt(prime);
+            sums[i] = random.nextInt(5 * prime * prime); // like a dot product of 5 terms
+            signed[i] = random.nextInt(2 * prime * prime) - prime * prime;
+        }
+
+        System.out.println("Field arithmetic, 2^20 operations, q = " + prime + " (ms)");
+        System.out.printf("%10s%10s%12s%n", "operation", "Modulo", "PrimeField");
+        System.out.printf("%10s%10.3f%12.3f%n", "reduce", Time(() -> {
+            int total = 0;
+            for (int i = 0; i < count; i++) {
+                total += Modulo.Mod(sums[i], prime);
+            }
+            sink = total;
+        }), Time(() -> {
+            int total = 0;
+            for (int i = 0; i < count; i++) {
+                total += field.Reduce(sums[i]);
+            }
+            sink = total;
+        }));
+        System.out.printf("%10s%10.3f%12.3f%n", "negative", Time(() -> {
+            int total = 0;
+            for (int i = 0; i < count; i++) {
+                total += Modulo.Mod(signed[i], prime);
+            }
+            sink = total;
+        }), Time(() -> {
+            int total = 0;
+            for (int i = 0; i < count; i++) {
+                total += field.Element(signed[i]);
+            }
+            sink = total;
+        }));
+        System.out.printf("%10s%10.3f%12.3f%n", "multiply", Time(() -> {
+            int total = 0;
+            for (int i = 0; i < count; i++) {
+                total += Modulo.Mod(a[i] * b[i], prime);
+            }
+            sink = total;
+        }), Time(() -> {
+            int total = 0;
+            for (int i = 0; i < count; i++) {
+                total += field.Mul(a[i], b[i]);
+            }
+            sink = total;
+        }));
+        System.out.printf("%10s%10.3f%12.3f%n", "inverse", Time(() -> {
+            int total = 0;
+            for (int i = 0; i < count; i++) {
+                total += Modulo.InverseMod(a[i], prime);
+            }
+            sink = total;
+        }), Time(() -> {
+            int total = 0;
+            for (int i = 0; i < count; i++) {
+                total += field.Inv(a[i]);
+            }
+            sink = total;
+        }));
+    }
+
+    /**
+     * Compares a 4 level pyramid made in one pass with downscaling by 2 four times
+     * in a row, after a single downscale
+     *
+     * @param secretImage image to downscale
+     * @throws IOException
+     */
+    static void CompareDownscale(BufferedImage secretImage) throws IOException {
+        ShareOperations operations = new ShareOperations(251);
+        System.out.println("Share downscaling (ms)");
+        System.out.printf("%-22s%10.3f%n", "Downscale by 2", Time(() -> operations.Downscale(secretImage, 2)));
+        System.out.printf("%-22s%10.3f%n", "Downscale 4 times", Time(() -> {
+            BufferedImage level = secretImage;
+            for (int l = 0; l < 4; l++) {
+                level = operations.Downscale(level, 2);
+            }
+        }));
+        System.out.printf("%-22s%10.3f%n", "Pyramid of 4 levels", Time(() -> operations.Pyramid(secretImage, 4)));
+    }
+
+    /**
+     * Times adding two share sets under the same keys and blending four with each
+     * backend
+     *
+     * @param secretImage image to share
+     * @throws IOException
+     */
+    static void CompareShareArithmetic(BufferedImage secretImage) throws IOException {
+        SSS secretSharing = new SSS(secretImage, 2, 5);
+        secretSharing.CreateShares();
+        Share shares[] = secretSharing.GetShares();
+
+        // a second set under the same keys with coefficients of its own
+        int keys[] = new int[shares.length];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = shares[i].keyX;
+        }
+        SSS otherSharing = new SSS(secretImage, 2, 5);
+        otherSharing.SetKeys(keys);
+        otherSharing.CreateShares();
+        Share others[] = otherSharing.GetShares();
+        ShareOperations operations = new ShareOperations(secretSharing.primeField);
+
+        System.out.println("Share arithmetic on 5 shares (ms)");
+        System.out.printf("%8s%10s%10s%n", "backend", "Add", "Blend 4");
+        for (SSS.Backend backend : SSS.Backend.values()) {
+            operations.SetBackend(backend);
+            System.out.printf("%8s%10.3f%10.3f%n", backend, Time(() -> operations.Add(shares, others)),
+                    Time(() -> operations.Blend(new Share[][] { shares, others, shares, others },
+                            new int[] { 1, 2, 3, 4 })));
+        }
+    }
+
+    /**
+     * Compares drawing 2^24 coefficients from SplittableRandom, which seeded runs
+     * use, with ChaCha20 on one stream and on one stream per task of the common
+     * pool
+     *
+     * @throws IOException
+     */
+    static void CompareRandomness() throws IOException {
+        int count = 1 << 24, tasks = 64;
+        byte coefficients[] = new byte[count];
+        SplittableRandom splittable = new SplittableRandom(0);
+        ChaCha20Random drbg = ChaCha20Random.FromSecureRandom();
+
+        System.out.println("Random coefficients, 2^24 draws (million per second)");
+        System.out.printf("%-22s%10.1f%n", "SplittableRandom", count / 1e3 / Time(() -> {
+            for (int i = 0; i < count; i++) {
+                coefficients[i] = (byte) (splittable.nextInt(249) + 1);
+            }
+        }));
+        System.out.printf("%-22s%10.1f%n", "ChaCha20", count / 1e3 / Time(() -> drbg.FillElements(coefficients, 0,
+                count, 1, 249)));
+        System.out.printf("%-22s%10.1f%n", "ChaCha20 per task", count / 1e3 / Time(() -> IntStream.range(0, tasks)
+                .parallel().forEach(task -> drbg.Stream(task + 1).FillElements(coefficients, task * (count / tasks),
+                        (task + 1) * (count / tasks), 1, 249))));
+    }
+
+    /**
+     * Replays 200 reconstructions of pairs out of 5 shares, with a few pairs asked
+     * for far more than the rest, without a cache and with one that holds 4 of
+     * the 10 pairs' results
+     *
+     * @param secretImage image to share
+     * @throws IOException
+     */
+    static void CompareReconstructionCache(BufferedImage secretImage) throws IOException {
+        SSS secretSharing = new SSS(secretImage, 2, 5);
+        secretSharing.SetSeed(0);
+        secretSharing.CreateShares();
+        Share shares[] = secretSharing.GetShares();
+
+        Share pairs[][] = new Share[10][];
+        for (int i = 0, p = 0; i < 5; i++) {
+            for (int j = i + 1; j < 5; j++) {
+                pairs[p++] = new Share[] { shares[i], shares[j] };
+            }
+        }
+        Random rng = new Random(0);
+        Share requests[][] = new Share[200][];
+        for (int r = 0; r < requests.length; r++) {
+            // cubing a uniform draw makes the first pairs the popular ones
+            requests[r] = pairs[(int) (pairs.length * Math.pow(rng.nextDouble(), 3))];
+        }
+        for (int i = 0; i < WARMUP; i++) {
+            secretSharing.DecryptSecret(pairs[i]);
+        }
+
+        ReconstructionCache<BufferedImage> cache = ReconstructionCache
+                .Images(4 * ReconstructionCache.ImageBytes(secretImage));
+        long start = System.nanoTime();
+        for (Share request[] : requests) {
+            secretSharing.DecryptSecret(request);
+        }
+        double uncached = (System.nanoTime() - start) / 1e6;
+        start = System.nanoTime();
+        for (Share request[] : requests) {
+            cache.Get(ReconstructionCache.Key.Of(request, 0), () -> secretSharing.DecryptSecret(request));
+        }
+        double cached = (System.nanoTime() - start) / 1e6;
+
+        System.out.println("Reconstruction cache, 200 requests (ms)");
+        System.out.printf("%-22s%10.3f%n", "No cache", uncached);
+        System.out.printf("%-22s%10.3f%n", "Cache of 4 images", cached);
+        System.out.printf("%-22s%10.3f%n", "Hit rate", cache.HitRate());
+        System.out.printf("%-22s%10d%n", "Evictions", cache.Evictions());
+    }
+
+    /**
+     * Compares reconstructing a whole share container set with reconstructing a
+     * 256x256 rectangle of it and an 8 times smaller preview, which is
+     * interpolated at half size and downscaled by 4 after
+     *
+     * @param secretImage image to share
+     * @throws IOException
+     */
+    static void CompareProgressive(BufferedImage secretImage) throws IOException {
+        SSS secretSharing = new SSS(Planes.Standardize(secretImage), 2, 5);
+        secretSharing.SetSeed(0);
+        secretSharing.CreateShares();
+        ShareFile shares[] = new ShareFile[2];
+        for (int i = 0; i < shares.length; i++) {
+            shares[i] = ShareFile.Wrap(ByteBuffer.wrap(ShareFile.ToBytes(secretSharing.GetShares()[i], 2, 5,
+                    secretSharing.primeField)));
+        }
+        Rectangle region = new Rectangle(secretImage.getWidth() / 2, secretImage.getHeight() / 2,
+                Math.min(256, secretImage.getWidth() / 2), Math.min(256, secretImage.getHeight() / 2));
+        ProgressiveDecoder decoder = new ProgressiveDecoder();
+
+        System.out.println("Share file reconstruction (ms)");
+        System.out.printf("%-22s%10.3f%n", "Whole image", Time(() -> ShareFile.Reconstruct(shares)));
+        System.out.printf("%-22s%10.3f%n", "Region " + region.width + "x" + region.height,
+                Time(() -> decoder.Region(shares, region)));
+        System.out.printf("%-22s%10.3f%n", "Preview by 8", Time(() -> decoder.Preview(shares, 8)));
+    }
+
+    /**
+     * Checks previews by 4 against the secret downscaled by 4. Previews come from
+     * shares downscaled by 2, so they should only differ by rounding and by the
+     * samples clamped to q - 1
+     *
+     * @param secretImage image to share
+     * @throws IOException
+     */
+    static void CheckPreview(BufferedImage secretImage) throws IOException {
+        BufferedImage secret = Planes.Standardize(secretImage);
+        SSS secretSharing = new SSS(secret, 2, 5);
+        secretSharing.CreateShares();
+        Share shares[] = secretSharing.GetShares();
+        ShareFile files[] = new ShareFile[2];
+        for (int i = 0; i < files.length; i++) {
+            files[i] = ShareFile.Wrap(ByteBuffer.wrap(ShareFile.ToBytes(shares[i], 2, 5, secretSharing.primeField)));
+        }
+        BufferedImage expected = new ShareOperations(secretSharing.primeField).Downscale(secret, 4);
+
+        System.out.println("Preview by 4 against the secret downscaled by 4 (mean error per sample)");
+        System.out.printf("%-22s%10.3f%n", "DecryptPreview",
+                SampleError(expected, secretSharing.DecryptPreview(shares, 4)));
+        System.out.printf("%-22s%10.3f%n", "ProgressiveDecoder",
+                SampleError(expected, new ProgressiveDecoder().Preview(files, 4)));
+    }
+
+    /**
+     * Mean absolute difference of the color samples of two images of the same
+     * size
+     *
+     * @param a
+     * @param b
+     * @return
+     */
+    static double SampleError(BufferedImage a, BufferedImage b) {
+        long sum = 0;
+        for (int y = 0; y < a.getHeight(); y++) {
+            for (int x = 0; x < a.getWidth(); x++) {
+                int p = a.getRGB(x, y), q = b.getRGB(x, y);
+                for (int shift = 0; shift < 24; shift += 8) {
+                    sum += Math.abs((p >>> shift & 0xFF) - (q >>> shift & 0xFF));
+                }
+            }
+        }
+        return (double) sum / (3L * a.getWidth() * a.getHeight());
+    }
+
+    /**
+     * Throughput of sharing and reconstructing a 64 MB blob with k = 3, n = 5 in
+     * both Mersenne fields, with seeded counter coefficients and with ChaCha20
+     *
+     * @throws IOException
+     */
+    static void CompareBlobSharing() throws IOException {
+        byte blob[] = new byte[64 << 20];
+        new Random(0).nextBytes(blob);
+
+        System.out.println("Blob sharing, 64 MB, k = 3, n = 5 (MB/s)");
+        System.out.printf("%-8s%10s%12s%14s%n", "field", "seeded", "share", "reconstruct");
+        for (MersenneField field : new MersenneField[] { MersenneField.P31, MersenneField.P61 }) {
+            for (boolean seeded : new boolean[] { true, false }) {
+                BlobSSS blobSharing = new BlobSSS(field, 3, 5);
+                blobSharing.SetParallelism(ForkJoinPool.commonPool());
+                if (seeded) {
+                    blobSharing.SetSeed(0);
+                }
+                BlobShare shares[] = blobSharing.CreateShares(blob);
+                System.out.printf("%-8s%10s%12.0f%14.0f%n", "2^" + field.bits + "-1", seeded,
+                        blob.length / 1e3 / Time(() -> blobSharing.CreateShares(blob)),
+                        blob.length / 1e3 / Time(() -> blobSharing.Reconstruct(shares)));
+            }
+        }
+    }
+
+    public static void main(String args[]) throws IOException {
+        BufferedImage secretImage = ImageIO.read(new File(args.length > 0 ? args[0] : "secret.bmp"));
+        System.out.println("Image: " + secretImage.getWidth() + "x" + secretImage.getHeight());
+
+        CompareFieldArithmetic();
+        CompareRandomness();
+        CompareBlobSharing();
+        ComparePipelines(secretImage);
+        MeasureEncryptionAllocation(secretImage);
+        CompareEvaluations(secretImage);
+        CompareCoefficientStorage(secretImage);
+        CompareArithmetic(secretImage);
+        CompareBackends(secretImage);
+        CompareEncodings(secretImage);
+        CompareParallelism(secretImage);
+        CompareDownscale(secretImage);
+        CompareShareArithmetic(secretImage);
+        CompareReconstructionCache(secretImage);
+        CompareProgressive(secretImage);
+        CheckPreview(secretImage);
+
+        if (Metrics.IsEnabled()) {
+            System.out.println("Phases of every run above (-Dsss.metrics=true)");
+            System.out.print(Metrics.Report());
+        }
+    }
+}
@@ -0,0 +1,424 @@
+import java.awt.image.*;
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.CRC32;
+import javax.imageio.ImageIO;
+import javax.management.ObjectName;
+
+/**
+ * @author My Tran
+ * @version 1.0
+ * @description Checks of SSS and the share containers that run without a test
+ *              framework. Every check throws on failure, main runs them all,
+ *              prints one line per check and exits with status 1 if any failed
+ */
+public class SSSTest {
+    private static int failures;
+
+    /**
+     * Interface for a check being run
+     */
+    interface Check {
+        void Run() throws Exception;
+    }
+
+    /**
+     * Runs a check and reports it
+     *
+     * @param name  name printed with the result
+     * @param check check to run
+     */
+    static void Run(String name, Check check) {
+        try {
+            check.Run();
+            System.out.println("PASS " + name);
+        } catch (Exception | AssertionError e) {
+            failures++;
+            System.out.println("FAIL " + name + ": " + e);
+        }
+    }
+
+    static void Expect(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    /**
+     * Image of random pixels
+     *
+     * @param width
+     * @param height
+     * @param type   BufferedImage type
+     * @param seed
+     * @return
+     */
+    static BufferedImage RandomImage(int width, int height, int type, long seed) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        Random random = new Random(seed);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Container of the first share of a small random image
+     *
+     * @param arithmetic field the shares are computed in
+     * @return
+     * @throws IOException
+     */
+    static byte[] Container(SSS.Arithmetic arithmetic) throws IOException {
+        SSS secretSharing = new SSS(RandomImage(20, 10, BufferedImage.TYPE_3BYTE_BGR, 0), 2, 3);
+        secretSharing.SetArithmetic(arithmetic);
+        secretSharing.SetSeed(0);
+        secretSharing.CreateShares();
+        return ShareFile.ToBytes(secretSharing.GetShares()[0], 2, 3, secretSharing.primeField);
+    }
+
+    /**
+     * Writes an int into a copy of a container's header and fixes the header CRC
+     *
+     * @param container
+     * @param offset    byte offset of the int
+     * @param value
+     * @return
+     */
+    static byte[] WithHeaderInt(byte container[], int offset, int value) {
+        byte changed[] = container.clone();
+        ByteBuffer buffer = ByteBuffer.wrap(changed).putInt(offset, value);
+        CRC32 crc = new CRC32();
+        crc.update(changed, 0, 56);
+        buffer.putInt(56, (int) crc.getValue());
+        return changed;
+    }
+
+    /**
+     * Checks that opening a container fails with an IOException
+     *
+     * @param container
+     * @param what      what is wrong with it, for the message
+     */
+    static void ExpectRejected(byte container[], String what) {
+        try {
+            ShareFile.Wrap(ByteBuffer.wrap(container));
+        } catch (IOException e) {
+            return;
+        }
+        throw new AssertionError("Container with " + what + " was accepted");
+    }
+
+    static void CheckShareFilePrimeField() throws IOException {
+        byte container[] = Container(SSS.Arithmetic.PRIME);
+        ShareFile.Wrap(ByteBuffer.wrap(container));
+        ExpectRejected(WithHeaderInt(container, 36, 300), "q = 300");
+        ExpectRejected(WithHeaderInt(container, 36, 249), "q = 249, not a prime");
+        ExpectRejected(WithHeaderInt(container, 36, 0), "q = 0");
+    }
+
+    static void CheckShareFileKey() throws IOException {
+        byte container[] = Container(SSS.Arithmetic.PRIME);
+        ExpectRejected(WithHeaderInt(container, 24, 0), "key 0");
+        ExpectRejected(WithHeaderInt(container, 24, 251), "key q");
+        ExpectRejected(WithHeaderInt(container, 24, 251 + ByteBuffer.wrap(container).getInt(24)),
+                "a key equal to another mod q");
+        ExpectRejected(WithHeaderInt(Container(SSS.Arithmetic.BINARY), 24, 300), "key 300 in GF(2^8)");
+    }
+
+    static void CheckShareFileScheme() throws IOException {
+        byte container[] = Container(SSS.Arithmetic.PRIME);
+        ExpectRejected(WithHeaderInt(container, 28, 0), "k = 0");
+        ExpectRejected(WithHeaderInt(container, 28, 4), "k > n");
+        ExpectRejected(WithHeaderInt(container, 32, 1), "n < k");
+    }
+
+    static void CheckServerSelect() throws Exception {
+        SSS secretSharing = new SSS(RandomImage(20, 10, BufferedImage.TYPE_3BYTE_BGR, 0), 2, 4);
+        secretSharing.SetSeed(0);
+        secretSharing.CreateShares();
+        List<ByteBuffer> containers = new ArrayList<>();
+        for (Share share : secretSharing.GetShares()) {
+            containers.add(ByteBuffer.wrap(ShareFile.ToBytes(share, 2, 4, secretSharing.primeField)));
+        }
+
+        List<ByteBuffer> used = ShareServer.Select(containers);
+        Collections.reverse(containers);
+        Expect(ShareServer.Select(containers).equals(used), "Shares in another order picked another subset");
+        Expect(ShareServer.ContentKey(ShareServer.Select(containers), "png")
+                .equals(ShareServer.ContentKey(used, "png")), "Shares in another order found another key");
+        Expect(!ShareServer.ContentKey(containers, "png").equals(ShareServer.ContentKey(used, "png")),
+                "Key covers shares that are not used");
+
+        List<ByteBuffer> repeated = List.of(containers.get(0), containers.get(0));
+        List<ByteBuffer> tooFew = List.of(containers.get(0));
+        byte corrupt[] = containers.get(1).array().clone();
+        corrupt[corrupt.length - 1] ^= 1;
+        for (List<ByteBuffer> bad : List.of(repeated, tooFew, List.of(ByteBuffer.wrap(corrupt), containers.get(2)),
+                List.of(ByteBuffer.wrap(new byte[10]), containers.get(2)))) {
+            try {
+                ShareServer.Select(bad);
+                throw new AssertionError("Bad shares were selected");
+            } catch (ShareServer.BadRequest e) {
+            }
+        }
+    }
+
+    static void CheckReconstructorWeights() {
+        Random random = new Random(0);
+        Map<Long, String> packed = new HashMap<>();
+        for (int round = 0; round < 2 * Reconstructor.WEIGHT_CACHE_ENTRIES; round++) {
+            int prime = round % 2 == 0 ? 251 : BinaryField.ORDER;
+            int keys[] = random.ints(1, 251).distinct().limit(2 + round % 8).toArray();
+            int weights[] = Reconstructor.Weights(keys, prime);
+
+            // the basis polynomials sum to 1, so the weights at x = 0 do too
+            int sum = 0;
+            for (int weight : weights) {
+                sum = prime == 251 ? (sum + weight) % 251 : sum ^ weight;
+            }
+            Expect(sum == 1, "Weights of " + Arrays.toString(keys) + " in " + prime + " sum to " + sum);
+
+            int reversed[] = new int[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                reversed[i] = keys[keys.length - 1 - i];
+            }
+            int reversedWeights[] = Reconstructor.Weights(reversed, prime);
+            for (int i = 0; i < keys.length; i++) {
+                Expect(reversedWeights[i] == weights[keys.length - 1 - i], "Weights do not follow their keys");
+            }
+
+            int sorted[] = keys.clone();
+            Arrays.sort(sorted);
+            long key = Reconstructor.PackKeys(sorted, prime);
+            Expect((key >= 0) == (keys.length <= Reconstructor.MAX_PACKED_KEYS), "Wrong key sets are cached");
+            String set = prime + Arrays.toString(sorted);
+            Expect(key < 0 || packed.computeIfAbsent(key, unused -> set).equals(set),
+                    "Two key sets packed to the same key");
+        }
+    }
+
+    /**
+     * Copy of an image with some samples changed
+     *
+     * @param image
+     * @param seed
+     * @return
+     */
+    static BufferedImage Disturbed(BufferedImage image, long seed) {
+        BufferedImage disturbed = new BufferedImage(image.getWidth(), image.getHeight(), image.getType());
+        disturbed.setData(image.getData());
+        Random random = new Random(seed);
+        WritableRaster raster = disturbed.getRaster();
+        for (int i = 0; i < image.getWidth() * image.getHeight() / 3; i++) {
+            raster.setSample(random.nextInt(image.getWidth()), random.nextInt(image.getHeight()),
+                    random.nextInt(raster.getNumBands()), random.nextInt(256));
+        }
+        return disturbed;
+    }
+
+    static void CheckMeanAverageErrorPipelines() throws IOException {
+        int types[] = { BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_BGR, BufferedImage.TYPE_3BYTE_BGR,
+                BufferedImage.TYPE_BYTE_GRAY, BufferedImage.TYPE_INT_ARGB };
+        for (int type : types) {
+            for (int width = 1; width <= 7; width++) {
+                for (int height : new int[] { 1, 2, 5 }) {
+                    BufferedImage secret = RandomImage(width, height, type, width * 31 + height);
+                    BufferedImage decrypted = Disturbed(secret, width + height);
+                    SSS secretSharing = new SSS(secret, 2, 3);
+
+                    secretSharing.SetPipeline(SSS.Pipeline.CODEC);
+                    long codec = secretSharing.MeanAverageError(secret, decrypted);
+                    secretSharing.SetPipeline(SSS.Pipeline.RASTER);
+                    long raster = secretSharing.MeanAverageError(secret, decrypted);
+                    Expect(codec == raster, "Type " + type + " at " + width + "x" + height + ": codec MAE " + codec
+                            + ", raster MAE " + raster);
+                }
+            }
+        }
+
+        // int planes with their colors in another order still line up sample for sample in BMP
+        BufferedImage rgb = RandomImage(5, 3, BufferedImage.TYPE_INT_RGB, 1);
+        BufferedImage bgr = new BufferedImage(5, 3, BufferedImage.TYPE_INT_BGR);
+        bgr.getGraphics().drawImage(Disturbed(rgb, 2), 0, 0, null);
+        SSS secretSharing = new SSS(rgb, 2, 3);
+        secretSharing.SetPipeline(SSS.Pipeline.CODEC);
+        long codec = secretSharing.MeanAverageError(rgb, bgr);
+        secretSharing.SetPipeline(SSS.Pipeline.RASTER);
+        Expect(codec == secretSharing.MeanAverageError(rgb, bgr), "RGB against BGR differs between pipelines");
+    }
+
+    /**
+     * Bytes Metrics recorded for the evaluation while creating shares
+     *
+     * @param type     BufferedImage type of the secret
+     * @param encoding
+     * @return
+     * @throws Exception
+     */
+    static long EvaluationBytes(int type, SSS.Encoding encoding) throws Exception {
+        SSS secretSharing = new SSS(RandomImage(20, 40, type, 0), 2, 3);
+        secretSharing.SetEncoding(encoding);
+        secretSharing.SetSeed(0);
+        Metrics.Reset();
+        secretSharing.CreateShares();
+        return (Long) ManagementFactory.getPlatformMBeanServer().getAttribute(
+                new ObjectName("ShamirsSecretSharing:type=Phase,name=EVALUATION"), "Bytes");
+    }
+
+    static void CheckEvaluationBytes() throws Exception {
+        boolean enabled = Metrics.IsEnabled();
+        Metrics.SetEnabled(true);
+        try {
+            for (int type : new int[] { BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_INT_RGB }) {
+                long expected = 3L * 20 * 40 * (type == BufferedImage.TYPE_INT_RGB ? 4 : 3);
+                Expect(EvaluationBytes(type, SSS.Encoding.SINGLE_PASS) == expected,
+                        "Single pass evaluation of type " + type + " did not record " + expected + " bytes");
+                Expect(EvaluationBytes(type, SSS.Encoding.PER_SHARE) == expected,
+                        "Per share evaluation of type " + type + " did not record " + expected + " bytes");
+            }
+        } finally {
+            Metrics.SetEnabled(enabled);
+            Metrics.Reset();
+        }
+    }
+
+    /**
+     * Checks that reading a blob share fails with an IllegalArgumentException
+     *
+     * @param bytes
+     * @param what  what is wrong with it, for the message
+     */
+    static void ExpectBlobRejected(byte bytes[], String what) {
+        try {
+            BlobShare.FromBytes(bytes);
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+        throw new AssertionError("Blob share with " + what + " was accepted");
+    }
+
+    static void CheckBlobShareFromBytes() {
+        for (int bits : new int[] { 31, 61 }) {
+            MersenneField field = MersenneField.For(bits);
+            BlobSSS blobSharing = new BlobSSS(field, 2, 3);
+            blobSharing.SetSeed(0);
+            byte blob[] = new byte[100];
+            new Random(0).nextBytes(blob);
+            byte bytes[] = blobSharing.CreateShares(blob)[0].ToBytes();
+            BlobShare.FromBytes(bytes);
+
+            ByteBuffer header = ByteBuffer.wrap(bytes.clone());
+            ExpectBlobRejected(header.putLong(16, 0).array(), "key 0");
+            ExpectBlobRejected(header.putLong(16, field.prime).array(), "key 2^" + bits + " - 1");
+
+            ByteBuffer element = ByteBuffer.wrap(bytes.clone());
+            if (bits == 61) {
+                ExpectBlobRejected(element.putLong(BlobShare.HEADER_BYTES, field.prime).array(), "element 2^61 - 1");
+                ExpectBlobRejected(element.putLong(BlobShare.HEADER_BYTES, -1).array(), "a negative element");
+            } else {
+                ExpectBlobRejected(element.putInt(BlobShare.HEADER_BYTES, (int) field.prime).array(),
+                        "element 2^31 - 1");
+                ExpectBlobRejected(element.putInt(BlobShare.HEADER_BYTES, -1).array(), "element 2^32 - 1");
+            }
+
+            // element bytes of this length overflow a long
+            ExpectBlobRejected(ByteBuffer.wrap(bytes.clone()).putLong(24, Long.MAX_VALUE).array(),
+                    "a length of 2^63 - 1");
+        }
+    }
+
+    /**
+     * Uncompressed 32 bit BMP of random pixels, bottom up, with random padding
+     * bytes unless the header gives an alpha mask
+     *
+     * @param width
+     * @param height
+     * @param alpha  write a 56 byte info header with bit fields and an alpha mask
+     * @return
+     */
+    static byte[] Bmp32(int width, int height, boolean alpha) {
+        int offset = 14 + (alpha ? 56 : 40);
+        ByteBuffer bmp = ByteBuffer.allocate(offset + 4 * width * height).order(ByteOrder.LITTLE_ENDIAN);
+        bmp.putShort((short) 0x4D42).putInt(bmp.capacity()).putInt(0).putInt(offset);
+        bmp.putInt(offset - 14).putInt(width).putInt(height).putShort((short) 1).putShort((short) 32)
+                .putInt(alpha ? 3 : 0).putInt(4 * width * height).putInt(2835).putInt(2835).putInt(0).putInt(0);
+        if (alpha) {
+            bmp.putInt(0xFF0000).putInt(0xFF00).putInt(0xFF).putInt(0xFF000000);
+        }
+        byte pixels[] = new byte[4 * width * height];
+        new Random(width * height).nextBytes(pixels);
+        return bmp.put(pixels).array();
+    }
+
+    static void CheckStreamingEncoder32Bit() throws IOException {
+        Path directory = Files.createTempDirectory("sss-test");
+        try {
+            for (boolean alpha : new boolean[] { false, true }) {
+                Path secretPath = directory.resolve("secret.bmp");
+                Files.write(secretPath, Bmp32(10, 6, alpha));
+                Path sharePaths[] = { directory.resolve("0.bmp"), directory.resolve("1.bmp"),
+                        directory.resolve("2.bmp") };
+                StreamingEncoder encoder = new StreamingEncoder(2, 3);
+                encoder.SetSeed(7);
+                int keys[] = encoder.Encode(secretPath, sharePaths);
+
+                BufferedImage secret = ImageIO.read(secretPath.toFile());
+                Expect(secret.getColorModel().hasAlpha() == alpha, "ImageIO read the alpha of the BMP differently");
+                SSS secretSharing = new SSS(secret, 2, 3);
+                secretSharing.SetSeed(7);
+                secretSharing.CreateShares();
+
+                for (int s = 0; s < 3; s++) {
+                    Share share = secretSharing.GetShares()[s];
+                    Expect(share.keyX == keys[s], "Share " + s + " has another key");
+                    int plane[] = Planes.Ints(share.shareImage);
+                    try (BmpFile file = BmpFile.Open(sharePaths[s])) {
+                        byte rows[] = new byte[file.height * file.rowBytes];
+                        file.ReadRows(0, file.height, rows);
+                        ByteBuffer pixels = ByteBuffer.wrap(rows).order(ByteOrder.LITTLE_ENDIAN);
+                        for (int y = 0; y < file.height; y++) {
+                            for (int x = 0; x < file.width; x++) {
+                                int streamed = pixels.getInt(file.RowOffset(y, file.height) + 4 * x);
+                                Expect(streamed == plane[y * file.width + x], "Share " + s + " differs at (" + x + ", "
+                                        + y + ") " + (alpha ? "with" : "without") + " alpha");
+                            }
+                        }
+                    }
+                }
+            }
+        } finally {
+            try (var paths = Files.list(directory)) {
+                for (Path path : (Iterable<Path>) paths::iterator) {
+                    Files.delete(path);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    public static void main(String args[]) {
+        Run("ShareFile rejects a field that is not prime or GF(2^8)", SSSTest::CheckShareFilePrimeField);
+        Run("ShareFile rejects a key outside [1, q - 1]", SSSTest::CheckShareFileKey);
+        Run("ShareFile rejects k and n without 1 <= k <= n", SSSTest::CheckShareFileScheme);
+        Run("Reconstructor weights follow their keys with and without the cache",
+                SSSTest::CheckReconstructorWeights);
+        Run("MeanAverageError agrees between the raster and codec pipelines",
+                SSSTest::CheckMeanAverageErrorPipelines);
+        Run("Both encodings record the bytes they evaluate", SSSTest::CheckEvaluationBytes);
+        Run("BlobShare rejects bad keys, elements and lengths", SSSTest::CheckBlobShareFromBytes);
+        Run("StreamingEncoder matches SSS on 32 bit BMPs", SSSTest::CheckStreamingEncoder32Bit);
+        Run("ShareServer picks the same shares in any order and rejects bad ones", SSSTest::CheckServerSelect);
+
+        if (failures > 0) {
+            System.out.println(failures + " checks failed");
+            System.exit(1);
+        }
+    }
+}
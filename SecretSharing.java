@@ -27,6 +27,9 @@ public class SecretSharing extends JFrame implements ActionListener {
     Share downscaleShareArray[];
     SSS secretSharing;
 
+    // Reconstructions and downscaled images already computed
+    ReconstructionCache<BufferedImage> reconstructions = ReconstructionCache.Images(64L << 20);
+
     // Radio buttons for selecting shares
     JRadioButton shareRadioButton0 = new JRadioButton("Share 0:");
     JRadioButton shareRadioButton1 = new JRadioButton("Share 1:");
@@ -247,8 +250,10 @@ public class SecretSharing extends JFrame implements ActionListener {
                 // Get the corresponding shares from the selected radio buttons
                 int count = 0;
 
-                // Store the shares that have been selected for reconstruction
+                // Store the shares that have been selected for reconstruction, and the
+                // full size shares they come from to key the cache
                 Share selectedShares[] = new Share[2];
+                Share originalShares[] = new Share[2];
                 for (int i : radioMap.keySet()) {
                     if (radioMap.get(i).isSelected()) {
                         // Get the downscaled shares if downscaled has been toggled
@@ -257,18 +262,19 @@ public class SecretSharing extends JFrame implements ActionListener {
                         } else {
                             selectedShares[count] = shareArray[i];
                         }
+                        originalShares[count] = shareArray[i];
                         count++;
                     }
                 }
 
-                // Apply decryption algorithm
+                // Apply decryption algorithm, reusing the result of a pair decrypted before
                 try {
+                    decryptedImage = reconstructions.Get(
+                            ReconstructionCache.Key.Of(originalShares, downscaled ? 1 : 0),
+                            () -> secretSharing.DecryptSecret(selectedShares));
                     if (downscaled) {
-                        downscaledDecrypted = secretSharing.DecryptSecret(selectedShares);
-                    } else {
-                        decryptedImage = secretSharing.DecryptSecret(selectedShares);
+                        downscaledDecrypted = decryptedImage;
                     }
-                    decryptedImage = secretSharing.DecryptSecret(selectedShares);
                 } catch (IOException e1) {
                     e1.printStackTrace();
                 }
@@ -312,7 +318,8 @@ public class SecretSharing extends JFrame implements ActionListener {
 
             // Downscale secret image
             try {
-                secretCanvas.setImage(secretSharing.Downscale(secretImage).getScaledInstance(
+                secretCanvas.setImage(reconstructions.Get(ReconstructionCache.Key.Of(secretImage, 1),
+                        () -> secretSharing.Downscale(secretImage)).getScaledInstance(
                         (fixedImageHeight * secretImage.getWidth()) / (2 * secretImage.getHeight()),
                         fixedImageHeight / 2, DO_NOTHING_ON_CLOSE));
             } catch (IOException e1) {
@@ -349,7 +356,8 @@ public class SecretSharing extends JFrame implements ActionListener {
                 // -1 indicates the mean could not be calculated
                 long meanAvg = -1;
                 try {
-                    meanAvg = secretSharing.MeanAverageError(secretSharing.Downscale(secretImage),
+                    meanAvg = secretSharing.MeanAverageError(reconstructions.Get(
+                            ReconstructionCache.Key.Of(secretImage, 1), () -> secretSharing.Downscale(secretImage)),
                             downscaledDecrypted);
                 } catch (IOException e1) {
                     // TODO Auto-generated catch block
@@ -0,0 +1,650 @@
+import java.awt.Rectangle;
+import java.awt.image.*;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.zip.CRC32;
+
+/**
+ * @author My Tran
+ * @version 1.0
+ * @description Share container file accessed through a memory-mapped view,
+ *              or through a buffer for containers sent over the network.
+ *              Layout, all big endian:
+ *
+ *              <pre>
+ *  0  int   magic "SSSP"          32  int   n
+ *  4  short version               36  int   prime field q
+ *  6  short flags (1 = int image) 40  long  number of field elements
+ *  8  int   BufferedImage type    48  int   elements per chunk
+ * 12  int   width                 52  int   number of chunks
+ * 16  int   height                56  int   CRC32 of bytes 0 to 55
+ * 20  int   elements per pixel    60  int   reserved
+ * 24  int   x key                 64        chunk index, 16 bytes a chunk:
+ * 28  int   k                               long offset, int length, int CRC32
+ *              </pre>
+ *
+ *              followed by the chunks. Field elements are packed one byte each
+ *              with no padding and no unused alpha bytes, so a share is no
+ *              larger than the samples it holds. Chunks can be validated and
+ *              reconstructed on their own without touching the rest of the file
+ */
+public class ShareFile implements Closeable {
+    static final int MAGIC = 0x53535350; // "SSSP"
+    static final short VERSION = 2;
+    static final int HEADER_BYTES = 64;
+    static final int INDEX_ENTRY_BYTES = 16;
+    static final int CHUNK_ELEMENTS = 1 << 16; // elements per chunk written by Save, rounded to whole pixels
+    static final short FLAG_INT_IMAGE = 1;
+
+    private final FileChannel channel; // null for containers in memory
+    private final ByteBuffer mapped; // the whole file
+    public final int imageType; // BufferedImage type the share was taken from
+    public final int width, height;
+    public final int elementsPerPixel; // field elements stored for each pixel
+    public final int keyX; // x key of the share
+    public final int k, n; // scheme the share belongs to
+    public final int primeField; // prime field q the share was created in, BinaryField.ORDER for GF(2^8)
+    public final long elementCount; // field elements in the share
+    public final int chunkElements; // field elements per chunk, the last one may be shorter
+    public final int chunkCount;
+    private final boolean intImage; // image stores pixels as ints
+    private final boolean hasAlpha; // int pixels keep their alpha byte
+
+    private ShareFile(FileChannel channel, ByteBuffer mapped) throws IOException {
+        this.channel = channel;
+        this.mapped = mapped;
+
+        if (mapped.capacity() < HEADER_BYTES || mapped.getInt(0) != MAGIC) {
+            throw new IOException("Not a share file");
+        }
+        if (mapped.getShort(4) != VERSION) {
+            throw new IOException("Unsupported share file version " + mapped.getShort(4));
+        }
+        if (mapped.getInt(56) != Crc(mapped, 0, 56)) {
+            throw new IOException("Share file header is corrupt");
+        }
+
+        intImage = (mapped.getShort(6) & FLAG_INT_IMAGE) != 0;
+        imageType = mapped.getInt(8);
+        width = mapped.getInt(12);
+        height = mapped.getInt(16);
+        elementsPerPixel = mapped.getInt(20);
+        keyX = mapped.getInt(24);
+        k = mapped.getInt(28);
+        n = mapped.getInt(32);
+        primeField = mapped.getInt(36);
+        elementCount = mapped.getLong(40);
+        chunkElements = mapped.getInt(48);
+        chunkCount = mapped.getInt(52);
+        hasAlpha = elementsPerPixel == 4;
+
+        // the scheme must be one reconstruction can run in
+        if (primeField != BinaryField.ORDER && !IsPrime(primeField)) {
+            throw new IOException("Share file field " + primeField + " is neither a prime below 256 nor GF(2^8)");
+        }
+        if (keyX < 1 || keyX >= primeField) {
+            throw new IOException("Share file key " + keyX + " is not in [1, " + (primeField - 1) + "]");
+        }
+        if (k < 1 || k > n) {
+            throw new IOException("Share file scheme k = " + k + ", n = " + n + " does not have 1 <= k <= n");
+        }
+
+        // the layout must be the one Write gives an image of this type and size
+        BufferedImage probe = Probe(imageType);
+        if (probe == null || ElementsPerPixel(probe) != elementsPerPixel
+                || intImage == Planes.IsBytePlane(probe)) {
+            throw new IOException("Share file of image type " + imageType + " cannot hold " + elementsPerPixel
+                    + (intImage ? " int" : " byte") + " elements per pixel");
+        }
+        long pixels = (long) width * height;
+        if (width <= 0 || height <= 0 || pixels > Long.MAX_VALUE / elementsPerPixel
+                || pixels * elementsPerPixel != elementCount) {
+            throw new IOException("Share file of " + width + "x" + height + " pixels cannot hold " + elementCount
+                    + " elements");
+        }
+
+        if (chunkElements <= 0 || chunkElements % elementsPerPixel != 0
+                || chunkCount != (elementCount + chunkElements - 1) / chunkElements
+                || HEADER_BYTES + (long) chunkCount * INDEX_ENTRY_BYTES > mapped.capacity()) {
+            throw new IOException("Share file chunk index does not match its header");
+        }
+        // chunks follow the index in order without overlapping
+        long next = HEADER_BYTES + (long) chunkCount * INDEX_ENTRY_BYTES;
+        for (int c = 0; c < chunkCount; c++) {
+            if (c == 0 && ChunkOffset(c) != next) {
+                throw new IOException("Chunk 0 does not start right after the chunk index");
+            }
+            if (ChunkOffset(c) < next) {
+                throw new IOException("Chunk " + c + " overlaps the chunk before it");
+            }
+            if (ChunkOffset(c) + ChunkLength(c) > mapped.capacity()
+                    || ChunkLength(c) != ChunkEnd(c) - ChunkStart(c)) {
+                throw new IOException("Chunk " + c + " lies outside the share file");
+            }
+            next = ChunkOffset(c) + ChunkLength(c);
+        }
+    }
+
+    /**
+     * Whether a number is a prime below 256, the fields whose elements fit the
+     * bytes of a container
+     *
+     * @param q
+     * @return
+     */
+    static boolean IsPrime(int q) {
+        if (q < 2 || q > 255) {
+            return false;
+        }
+        for (int d = 2; d * d <= q; d++) {
+            if (q % d == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Image of a standard type that shares can be saved from
+     *
+     * @param imageType BufferedImage type from a header
+     * @return 1x1 image of the type, null if shares of it cannot be saved
+     */
+    private static BufferedImage Probe(int imageType) {
+        if (imageType == BufferedImage.TYPE_CUSTOM) {
+            return null;
+        }
+        try {
+            BufferedImage probe = new BufferedImage(1, 1, imageType);
+            return Planes.IsDirect(probe) ? probe : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes a share container through a mapping of the file
+     *
+     * @param share      share with a direct image of a standard BufferedImage type
+     * @param k          threshold of the scheme
+     * @param n          number of shares in the scheme
+     * @param primeField prime field q the share was created in, or
+     *                   BinaryField.ORDER for GF(2^8)
+     * @param path       file to write, replaced if it exists
+     * @throws IOException
+     */
+    public static void Save(Share share, int k, int n, int primeField, Path path) throws IOException {
+        long size = Size(share, primeField);
+
+        try (FileChannel out = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer mapped = out.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            Write(share, k, n, primeField, mapped);
+            mapped.force();
+        }
+    }
+
+    /**
+     * Writes a share container into a byte array
+     *
+     * @param share      share with a direct image of a standard BufferedImage type
+     * @param k          threshold of the scheme
+     * @param n          number of shares in the scheme
+     * @param primeField prime field q the share was created in, or
+     *                   BinaryField.ORDER for GF(2^8)
+     * @return
+     */
+    public static byte[] ToBytes(Share share, int k, int n, int primeField) {
+        ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(Size(share, primeField)));
+        Write(share, k, n, primeField, buffer);
+        return buffer.array();
+    }
+
+    /**
+     * Bytes taken by the container of a share
+     *
+     * @param share      share with a direct image of a standard BufferedImage type
+     * @param primeField field the share was created in
+     * @return
+     */
+    private static long Size(Share share, int primeField) {
+        BufferedImage image = share.shareImage;
+        if (!Planes.IsDirect(image) || image.getType() == BufferedImage.TYPE_CUSTOM) {
+            throw new IllegalArgumentException("Only shares with a direct raster of a standard type can be saved");
+        }
+        if (primeField > 256) {
+            throw new IllegalArgumentException("Field elements must fit in a byte, q = " + primeField);
+        }
+
+        long elementCount = (long) image.getWidth() * image.getHeight() * ElementsPerPixel(image);
+        int chunkElements = ChunkElements(image);
+        long chunkCount = (elementCount + chunkElements - 1) / chunkElements;
+        return HEADER_BYTES + chunkCount * INDEX_ENTRY_BYTES + elementCount;
+    }
+
+    /**
+     * Field elements stored for each pixel of an image
+     *
+     * @param image
+     * @return
+     */
+    private static int ElementsPerPixel(BufferedImage image) {
+        if (Planes.IsBytePlane(image)) {
+            return Planes.PixelStride(image);
+        }
+        return image.getColorModel().hasAlpha() ? 4 : 3;
+    }
+
+    /**
+     * Elements per chunk for an image, rounded to whole pixels
+     *
+     * @param image
+     * @return
+     */
+    private static int ChunkElements(BufferedImage image) {
+        int elementsPerPixel = ElementsPerPixel(image);
+        return CHUNK_ELEMENTS / elementsPerPixel * elementsPerPixel;
+    }
+
+    /**
+     * Writes the header, index and packed elements of a share from index 0 of a
+     * buffer sized by Size
+     *
+     * @param share
+     * @param k
+     * @param n
+     * @param primeField
+     * @param out
+     */
+    private static void Write(Share share, int k, int n, int primeField, ByteBuffer out) {
+        BufferedImage image = share.shareImage;
+        boolean intImage = !Planes.IsBytePlane(image);
+        int elementsPerPixel = ElementsPerPixel(image);
+        long elementCount = (long) image.getWidth() * image.getHeight() * elementsPerPixel;
+        int chunkElements = ChunkElements(image);
+        int chunkCount = (int) ((elementCount + chunkElements - 1) / chunkElements);
+        long dataStart = HEADER_BYTES + (long) chunkCount * INDEX_ENTRY_BYTES;
+
+        out.putInt(MAGIC).putShort(VERSION).putShort(intImage ? FLAG_INT_IMAGE : 0).putInt(image.getType())
+                .putInt(image.getWidth()).putInt(image.getHeight()).putInt(elementsPerPixel).putInt(share.keyX)
+                .putInt(k).putInt(n).putInt(primeField).putLong(elementCount).putInt(chunkElements)
+                .putInt(chunkCount);
+        out.putInt(Crc(out, 0, 56)).putInt(0);
+
+        // packed elements go straight into the data area
+        out.position((int) dataStart);
+        if (intImage) {
+            int plane[] = Planes.Ints(image);
+            for (int pixel : plane) {
+                if (elementsPerPixel == 4) {
+                    out.put((byte) (pixel >>> 24));
+                }
+                out.put((byte) (pixel >> 16)).put((byte) (pixel >> 8)).put((byte) pixel);
+            }
+        } else {
+            out.put(Planes.Bytes(image));
+        }
+
+        for (int c = 0; c < chunkCount; c++) {
+            long start = (long) c * chunkElements;
+            int length = (int) Math.min(chunkElements, elementCount - start);
+            int offset = (int) (dataStart + start);
+            out.putLong(HEADER_BYTES + c * INDEX_ENTRY_BYTES, offset)
+                    .putInt(HEADER_BYTES + c * INDEX_ENTRY_BYTES + 8, length)
+                    .putInt(HEADER_BYTES + c * INDEX_ENTRY_BYTES + 12, Crc(out, offset, length));
+        }
+    }
+
+    /**
+     * Opens a share file by mapping it read only. Only the header and chunk index
+     * are read
+     *
+     * @param path share file
+     * @return
+     * @throws IOException if the header or index are corrupt
+     */
+    public static ShareFile Open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new ShareFile(channel, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads a share container held in memory, such as one received over the
+     * network
+     *
+     * @param container buffer with the container between its position and limit
+     * @return
+     * @throws IOException if the header or index are corrupt
+     */
+    public static ShareFile Wrap(ByteBuffer container) throws IOException {
+        return new ShareFile(null, container.slice().order(ByteOrder.BIG_ENDIAN));
+    }
+
+    /**
+     * File offset of a chunk from the index
+     *
+     * @param chunk
+     * @return
+     */
+    public long ChunkOffset(int chunk) {
+        return mapped.getLong(HEADER_BYTES + chunk * INDEX_ENTRY_BYTES);
+    }
+
+    /**
+     * Number of elements in a chunk from the index
+     *
+     * @param chunk
+     * @return
+     */
+    public int ChunkLength(int chunk) {
+        return mapped.getInt(HEADER_BYTES + chunk * INDEX_ENTRY_BYTES + 8);
+    }
+
+    /**
+     * Index of the first element of a chunk
+     *
+     * @param chunk
+     * @return
+     */
+    public long ChunkStart(int chunk) {
+        return (long) chunk * chunkElements;
+    }
+
+    /**
+     * Index after the last element of a chunk
+     *
+     * @param chunk
+     * @return
+     */
+    public long ChunkEnd(int chunk) {
+        return Math.min(ChunkStart(chunk) + chunkElements, elementCount);
+    }
+
+    /**
+     * Mapped view of the elements of one chunk
+     *
+     * @param chunk
+     * @return view with the chunk's first element at index 0
+     */
+    public ByteBuffer Chunk(int chunk) {
+        return mapped.duplicate().position((int) ChunkOffset(chunk)).limit((int) ChunkOffset(chunk)
+                + ChunkLength(chunk)).slice();
+    }
+
+    /**
+     * Checks the CRC of one chunk
+     *
+     * @param chunk
+     * @return true if the chunk matches its checksum
+     */
+    public boolean ValidateChunk(int chunk) {
+        return Crc(mapped, (int) ChunkOffset(chunk), ChunkLength(chunk)) == mapped
+                .getInt(HEADER_BYTES + chunk * INDEX_ENTRY_BYTES + 12);
+    }
+
+    /**
+     * Checks the CRC of every chunk. The header was checked when the file was
+     * opened
+     *
+     * @return index of the first corrupt chunk, -1 if there is none
+     */
+    public int Validate() {
+        for (int c = 0; c < chunkCount; c++) {
+            if (!ValidateChunk(c)) {
+                return c;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Copies the share into a Share object for code working on images
+     *
+     * @return
+     */
+    public Share ToShare() {
+        Share share = new Share();
+        share.keyX = keyX;
+        share.shareImage = new BufferedImage(width, height, imageType);
+
+        byte elements[] = new byte[chunkElements];
+        for (int c = 0; c < chunkCount; c++) {
+            Chunk(c).get(elements, 0, ChunkLength(c));
+            Unpack(elements, ChunkLength(c), share.shareImage, ChunkStart(c));
+        }
+        return share;
+    }
+
+    /**
+     * Copies rows of the share into a Share object, reading only the chunks
+     * covering them
+     *
+     * @param first first row to read
+     * @param rows  number of rows
+     * @return share whose image holds the rows
+     */
+    public Share ReadRows(int first, int rows) {
+        if (first < 0 || rows < 1 || first + rows > height) {
+            throw new IllegalArgumentException("Rows " + first + " to " + (first + rows) + " are outside a share of "
+                    + height + " rows");
+        }
+
+        Share share = new Share();
+        share.keyX = keyX;
+        share.shareImage = new BufferedImage(width, rows, imageType);
+
+        long from = (long) first * width * elementsPerPixel, to = from + (long) rows * width * elementsPerPixel;
+        byte elements[] = intImage ? new byte[chunkElements] : Planes.Bytes(share.shareImage);
+        for (int c = (int) (from / chunkElements); c < chunkCount && ChunkStart(c) < to; c++) {
+            long start = Math.max(from, ChunkStart(c)), end = Math.min(to, ChunkEnd(c));
+            if (intImage) {
+                Chunk(c).get((int) (start - ChunkStart(c)), elements, 0, (int) (end - start));
+                Unpack(elements, (int) (end - start), share.shareImage, start - from);
+            } else {
+                Chunk(c).get((int) (start - ChunkStart(c)), elements, (int) (start - from), (int) (end - start));
+            }
+        }
+        return share;
+    }
+
+    /**
+     * Reconstructs a range of field elements from the chunks covering it only
+     *
+     * @param shares  at least k open share files of the same secret
+     * @param from    first element to reconstruct
+     * @param to      element after the last one to reconstruct
+     * @param out     array receiving the elements
+     * @param outFrom index in out of element from
+     * @throws IOException if the shares do not belong together
+     */
+    public static void ReconstructElements(ShareFile shares[], long from, long to, byte out[], int outFrom)
+            throws IOException {
+        ReconstructElements(shares, Weights(shares), from, to, out, outFrom);
+    }
+
+    /**
+     * ReconstructElements with the weights of the shares already computed
+     *
+     * @param shares
+     * @param weights weights from Weights
+     * @param from
+     * @param to
+     * @param out
+     * @param outFrom
+     */
+    private static void ReconstructElements(ShareFile shares[], int weights[], long from, long to, byte out[],
+            int outFrom) {
+        ShareFile first = shares[0];
+        ByteBuffer chunks[] = new ByteBuffer[weights.length];
+
+        for (int c = (int) (from / first.chunkElements); c < first.chunkCount && first.ChunkStart(c) < to; c++) {
+            for (int s = 0; s < weights.length; s++) {
+                chunks[s] = shares[s].Chunk(c);
+            }
+            long chunkStart = first.ChunkStart(c);
+            int chunkFrom = (int) (Math.max(from, chunkStart) - chunkStart);
+            int chunkTo = (int) (Math.min(to, first.ChunkEnd(c)) - chunkStart);
+            Reconstructor.Combine(chunks, weights, first.primeField, chunkFrom, chunkTo, out,
+                    (int) (outFrom + chunkStart + chunkFrom - from));
+        }
+    }
+
+    /**
+     * Reconstructs the secret image from the mapped chunks of k share files
+     *
+     * @param shares at least k open share files of the same secret
+     * @return reconstructed secret
+     * @throws IOException if the shares do not belong together
+     */
+    public static BufferedImage Reconstruct(ShareFile shares[]) throws IOException {
+        ShareFile first = shares[0];
+        BufferedImage secret = new BufferedImage(first.width, first.height, first.imageType);
+
+        if (!first.intImage) {
+            // packed elements are exactly the byte plane
+            ReconstructElements(shares, 0, first.elementCount, Planes.Bytes(secret), 0);
+        } else {
+            byte elements[] = new byte[first.chunkElements];
+            for (int c = 0; c < first.chunkCount; c++) {
+                ReconstructElements(shares, first.ChunkStart(c), first.ChunkEnd(c), elements, 0);
+                first.Unpack(elements, first.ChunkLength(c), secret, first.ChunkStart(c));
+            }
+        }
+        return secret;
+    }
+
+    /**
+     * Reconstructs a rectangle of the secret image. Only the elements of the
+     * rectangle's rows that lie inside it are read from each share, so mapped
+     * files only page in the chunks covering it
+     *
+     * @param shares at least k open share files of the same secret
+     * @param region rectangle of the secret in pixels
+     * @return image of the rectangle's size
+     * @throws IOException if the shares do not belong together
+     */
+    public static BufferedImage ReconstructRegion(ShareFile shares[], Rectangle region) throws IOException {
+        BufferedImage out = new BufferedImage(region.width, region.height, shares[0].imageType);
+        ReconstructRegion(shares, region, out, 0, 0);
+        return out;
+    }
+
+    /**
+     * Reconstructs a rectangle of the secret image into part of another image
+     *
+     * @param shares at least k open share files of the same secret
+     * @param region rectangle of the secret in pixels
+     * @param out    image of the type the shares were taken from
+     * @param outX   column of out receiving the rectangle's left edge
+     * @param outY   row of out receiving the rectangle's top edge
+     * @throws IOException if the shares do not belong together
+     */
+    public static void ReconstructRegion(ShareFile shares[], Rectangle region, BufferedImage out, int outX, int outY)
+            throws IOException {
+        ShareFile first = shares[0];
+        if (region.isEmpty() || !new Rectangle(first.width, first.height).contains(region)) {
+            throw new IllegalArgumentException("Region " + region + " is not inside a " + first.width + "x"
+                    + first.height + " image");
+        }
+        if (out.getType() != first.imageType || !new Rectangle(out.getWidth(), out.getHeight())
+                .contains(new Rectangle(outX, outY, region.width, region.height))) {
+            throw new IllegalArgumentException("Region does not fit the output image");
+        }
+
+        int weights[] = Weights(shares);
+        int rowElements = region.width * first.elementsPerPixel;
+        byte elements[] = first.intImage ? new byte[rowElements] : null;
+        for (int y = 0; y < region.height; y++) {
+            long from = ((long) (region.y + y) * first.width + region.x) * first.elementsPerPixel;
+            long outStart = ((long) (outY + y) * out.getWidth() + outX) * first.elementsPerPixel;
+            if (first.intImage) {
+                ReconstructElements(shares, weights, from, from + rowElements, elements, 0);
+                first.Unpack(elements, rowElements, out, outStart);
+            } else {
+                ReconstructElements(shares, weights, from, from + rowElements, Planes.Bytes(out), (int) outStart);
+            }
+        }
+    }
+
+    /**
+     * Checks that the shares belong together and computes their weights
+     *
+     * @param shares share files, the first k are used
+     * @return Lagrange weights of the first k shares
+     * @throws IOException
+     */
+    static int[] Weights(ShareFile shares[]) throws IOException {
+        ShareFile first = shares[0];
+        if (shares.length < first.k) {
+            throw new IllegalArgumentException("At least " + first.k + " shares are needed to reconstruct, got "
+                    + shares.length);
+        }
+
+        int keys[] = new int[first.k];
+        for (int i = 0; i < first.k; i++) {
+            ShareFile share = shares[i];
+            if (share.imageType != first.imageType || share.width != first.width || share.height != first.height
+                    || share.primeField != first.primeField || share.k != first.k
+                    || share.chunkElements != first.chunkElements) {
+                throw new IOException("Share files do not come from the same scheme and image");
+            }
+            keys[i] = share.keyX;
+        }
+        return Reconstructor.Weights(keys, first.primeField);
+    }
+
+    /**
+     * Writes packed elements into the pixels of an image. Ranges of int images
+     * must start and end on whole pixels
+     *
+     * @param elements packed elements
+     * @param length   number of elements
+     * @param image    image with this share's layout
+     * @param start    index among the elements of image receiving elements[0]
+     */
+    private void Unpack(byte elements[], int length, BufferedImage image, long start) {
+        if (!intImage) {
+            System.arraycopy(elements, 0, Planes.Bytes(image), (int) start, length);
+            return;
+        }
+
+        int plane[] = Planes.Ints(image);
+        int pixel = (int) (start / elementsPerPixel);
+        for (int e = 0; e < length; e += elementsPerPixel, pixel++) {
+            int alpha = hasAlpha ? (elements[e] & 0xFF) << 24 : 0;
+            int rgb = hasAlpha ? e + 1 : e;
+            plane[pixel] = alpha | (elements[rgb] & 0xFF) << 16 | (elements[rgb + 1] & 0xFF) << 8
+                    | (elements[rgb + 2] & 0xFF);
+        }
+    }
+
+    /**
+     * CRC32 of a range of a buffer
+     *
+     * @param buffer
+     * @param offset
+     * @param length
+     * @return
+     */
+    private static int Crc(ByteBuffer buffer, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate().position(offset).limit(offset + length));
+        return (int) crc.getValue();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.net.URI;
+import java.net.http.*;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+
+/**
+ * @author My Tran
+ * @version 1.0
+ * @description Load test of ShareServer on localhost. Starts a server, fires
+ *              many concurrent share requests for a small image, reconstructs
+ *              each result from k of its shares, checks it against the secret
+ *              and reports throughput and latency
+ */
+public class ShareLoadTest {
+
+    /**
+     * Shares an image and reconstructs it from the last k shares
+     *
+     * @param client
+     * @param base    server URI
+     * @param image   PNG bytes of the secret
+     * @param k
+     * @param n
+     * @return reconstructed PNG bytes
+     */
+    static CompletableFuture<HttpResponse<byte[]>> RoundTrip(HttpClient client, URI base, byte image[], int k,
+            int n) {
+        HttpRequest share = HttpRequest.newBuilder(base.resolve("/share?field=binary&k=" + k + "&n=" + n))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(image)).build();
+
+        return client.sendAsync(share, HttpResponse.BodyHandlers.ofByteArray()).thenCompose(response -> {
+            if (response.statusCode() != 200) {
+                return CompletableFuture.completedFuture(response);
+            }
+            try {
+                List<ByteBuffer> containers = ShareServer.Unframe(response.body());
+                List<byte[]> chosen = new ArrayList<>();
+                for (ByteBuffer container : containers.subList(n - k, n)) {
+                    byte bytes[] = new byte[container.remaining()];
+                    container.get(bytes);
+                    chosen.add(bytes);
+                }
+                HttpRequest reconstruct = HttpRequest.newBuilder(base.resolve("/reconstruct"))
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(ShareServer.Frame(chosen))).build();
+                return client.sendAsync(reconstruct, HttpResponse.BodyHandlers.ofByteArray());
+            } catch (ShareServer.BadRequest e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        });
+    }
+
+    public static void main(String args[]) throws Exception {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int cpuThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int k = 3, n = 5;
+
+        // small image of random pixels, shared losslessly so the check is exact
+        BufferedImage secret = new BufferedImage(64, 64, BufferedImage.TYPE_3BYTE_BGR);
+        Random random = new Random(0);
+        for (int y = 0; y < secret.getHeight(); y++) {
+            for (int x = 0; x < secret.getWidth(); x++) {
+                secret.setRGB(x, y, random.nextInt());
+            }
+        }
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(secret, "png", png);
+        byte image[] = png.toByteArray();
+
+        ShareServer server = new ShareServer(0, cpuThreads, requests);
+        server.Start();
+        URI base = URI.create("http://localhost:" + server.Port());
+        HttpClient client = HttpClient.newBuilder().executor(Executors.newFixedThreadPool(4)).build();
+
+        long latencies[] = new long[requests];
+        AtomicInteger correct = new AtomicInteger(), rejected = new AtomicInteger(), failed = new AtomicInteger();
+        CompletableFuture<?> all[] = new CompletableFuture<?>[requests];
+
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            int request = i;
+            long sent = System.nanoTime();
+            all[i] = RoundTrip(client, base, image, k, n).handle((response, error) -> {
+                latencies[request] = System.nanoTime() - sent;
+                if (error != null) {
+                    failed.incrementAndGet();
+                } else if (response.statusCode() == 503) {
+                    rejected.incrementAndGet();
+                } else if (response.statusCode() == 200 && SameImage(secret, response.body())) {
+                    correct.incrementAndGet();
+                } else {
+                    failed.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        CompletableFuture.allOf(all).join();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        Arrays.sort(latencies);
+        System.out.printf(Locale.ROOT, "%d round trips on %s, %d CPU threads%n", requests,
+                server.virtualThreads ? "virtual threads" : "platform request threads", cpuThreads);
+        System.out.printf(Locale.ROOT, "correct %d, rejected %d, failed %d%n", correct.get(), rejected.get(),
+                failed.get());
+        System.out.printf(Locale.ROOT, "elapsed %.3f s, %.1f round trips/s%n", seconds, requests / seconds);
+        System.out.printf(Locale.ROOT, "latency p50 %.3f ms, p95 %.3f ms, p99 %.3f ms, max %.3f ms%n",
+                BatchSharer.Percentile(latencies, 50) / 1e6, BatchSharer.Percentile(latencies, 95) / 1e6,
+                BatchSharer.Percentile(latencies, 99) / 1e6, latencies[requests - 1] / 1e6);
+
+        server.Stop();
+        System.exit(0);
+    }
+
+    /**
+     * Checks a reconstructed PNG against the secret
+     *
+     * @param secret
+     * @param png
+     * @return
+     */
+    private static boolean SameImage(BufferedImage secret, byte png[]) {
+        try {
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+            for (int y = 0; y < secret.getHeight(); y++) {
+                for (int x = 0; x < secret.getWidth(); x++) {
+                    if (image.getRGB(x, y) != secret.getRGB(x, y)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,503 @@
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * @author My Tran
+ * @version 1.0
+ * @description Image operations that run on shares without reconstructing the
+ *              secret. Downscaling averages every color sample of a block of
+ *              pixels, with samples clamped to q - 1 first like the secret is
+ *              when it is shared. Coefficients are drawn per 2x2 block, so only a
+ *              downscale by 2 keeps shares: larger blocks average values of
+ *              different polynomials and reconstruct to noise. Downscale(shares)
+ *              and SHARE_FACTOR are for shares, any factor and any number of
+ *              pyramid levels are for plain images such as a reconstructed
+ *              secret. Standard byte and int images are read straight from their
+ *              planes a row at a time, others go through getRGB. Rows of the
+ *              output are split into tasks that run on the pool if one is set.
+ *
+ *              Linear operations work sample by sample in the field. Shares with
+ *              the same key x of secrets A and B add up to a share of A + B, and
+ *              c times a share is a share of cA, so Add, Subtract, Multiply,
+ *              Divide and Blend give shares that reconstruct to the result
+ */
+public class ShareOperations {
+    private final int prime; // prime field q, or BinaryField.ORDER for GF(2^8)
+    private final int maxSample; // samples above this are clamped before averaging
+    private ForkJoinPool pool; // pool for parallel work, null runs everything on the calling thread
+    private SSS.Backend backend = SSS.Backend.VECTOR; // kernels for byte planes
+
+    static final int MAX_OPERANDS = 255; // share sets in one blend, keeps the sums of the kernels in range
+
+    static final int TASK_ROWS = 32; // source rows handled by one task
+
+    public static final int SHARE_FACTOR = 2; // side of the blocks sharing one set of coefficients
+
+    /**
+     * Constructor for ShareOperations
+     *
+     * @param prime prime field q of the shares, or BinaryField.ORDER for GF(2^8)
+     *              where no sample is clamped
+     */
+    public ShareOperations(int prime) {
+        this.prime = prime;
+        maxSample = Math.min(prime, 256) - 1;
+    }
+
+    /**
+     * Run the operations on a pool
+     *
+     * @param pool pool to run on, null to run on the calling thread
+     */
+    public void SetParallelism(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Choose the kernels of the linear operations on byte planes
+     *
+     * @param backend SCALAR, or VECTOR to use VectorBackend.AVAILABLE when loaded
+     */
+    public void SetBackend(SSS.Backend backend) {
+        this.backend = backend;
+    }
+
+    /**
+     * Shares of A + B
+     *
+     * @param a shares of A
+     * @param b shares of B with the same keys in the same order
+     * @return
+     */
+    public Share[] Add(Share a[], Share b[]) {
+        return Blend(new Share[][] { a, b }, new int[] { 1, 1 });
+    }
+
+    /**
+     * Shares of A - B
+     *
+     * @param a shares of A
+     * @param b shares of B with the same keys in the same order
+     * @return
+     */
+    public Share[] Subtract(Share a[], Share b[]) {
+        // -1 is q - 1, and 1 itself in GF(2^8) where adding and subtracting are XOR
+        return Blend(new Share[][] { a, b }, new int[] { 1, prime == BinaryField.ORDER ? 1 : prime - 1 });
+    }
+
+    /**
+     * Shares of c * A
+     *
+     * @param shares shares of A
+     * @param scalar c, reduced into the field
+     * @return
+     */
+    public Share[] Multiply(Share shares[], int scalar) {
+        return Blend(new Share[][] { shares }, new int[] { scalar });
+    }
+
+    /**
+     * Shares of A / c, which is A times the inverse of c in the field
+     *
+     * @param shares shares of A
+     * @param scalar c, nonzero in the field
+     * @return
+     */
+    public Share[] Divide(Share shares[], int scalar) {
+        int divisor = Element(scalar);
+        if (divisor == 0) {
+            throw new IllegalArgumentException("Cannot divide shares by " + scalar + ", it is 0 in the field");
+        }
+        return Multiply(shares, prime == BinaryField.ORDER ? BinaryField.Inv(divisor) : PrimeField.For(prime)
+                .Inv(divisor));
+    }
+
+    /**
+     * Shares of w1 * A1 + w2 * A2 + ... of many secrets. Every sample of the
+     * result is the weighted sum of the samples at the same index
+     *
+     * @param sets    shares of each secret. Share i of every set must have the
+     *                same key and image layout
+     * @param weights weight of each set, reduced into the field
+     * @return one share per key, with new images
+     */
+    public Share[] Blend(Share sets[][], int weights[]) {
+        if (sets.length != weights.length || sets.length < 1 || sets.length > MAX_OPERANDS) {
+            throw new IllegalArgumentException("Need 1 to " + MAX_OPERANDS + " share sets with one weight each, got "
+                    + sets.length + " sets and " + weights.length + " weights");
+        }
+        int count = sets[0].length;
+        int elements[] = new int[weights.length];
+        for (int j = 0; j < weights.length; j++) {
+            elements[j] = Element(weights[j]);
+        }
+
+        Share results[] = new Share[count];
+        BufferedImage operands[][] = new BufferedImage[count][sets.length];
+        for (int i = 0; i < count; i++) {
+            for (int j = 0; j < sets.length; j++) {
+                if (sets[j].length != count || sets[j][i].keyX != sets[0][i].keyX) {
+                    throw new IllegalArgumentException("Share " + i + " of set " + j
+                            + " does not have the key of the first set");
+                }
+                operands[i][j] = sets[j][i].shareImage;
+            }
+            if (!Planes.SameLayout(operands[i])) {
+                throw new IllegalArgumentException("Share " + i + " images need the same size and direct layout");
+            }
+            results[i] = new Share();
+            results[i].keyX = sets[0][i].keyX;
+            results[i].shareImage = Planes.CreateCompatible(operands[i][0]);
+        }
+        if (count == 0) {
+            return results;
+        }
+
+        // every share is cut into chunks and all chunks of all shares run as tasks
+        boolean bytePlanes = Planes.IsBytePlane(results[0].shareImage);
+        int length = bytePlanes ? Planes.Bytes(results[0].shareImage).length
+                : Planes.Ints(results[0].shareImage).length;
+        int chunks = Math.max(1, (length + SSS.CHUNK_SIZE - 1) / SSS.CHUNK_SIZE);
+        VectorBackend vectors = VectorBackend.AVAILABLE;
+        VectorBackend kernels = backend == SSS.Backend.VECTOR && vectors != null && vectors.Supports(prime) ? vectors
+                : null;
+
+        SSS.RunTasks(pool, count * chunks, task -> {
+            int i = task / chunks, from = task % chunks * SSS.CHUNK_SIZE, to = Math.min(from + SSS.CHUNK_SIZE, length);
+            BufferedImage images[] = operands[i];
+            if (bytePlanes) {
+                byte planes[][] = new byte[images.length][];
+                for (int j = 0; j < images.length; j++) {
+                    planes[j] = Planes.Bytes(images[j]);
+                }
+                if (kernels != null) {
+                    kernels.Combine(planes, elements, prime, Planes.Bytes(results[i].shareImage), from, to);
+                } else {
+                    Reconstructor.Combine(planes, elements, prime, Planes.Bytes(results[i].shareImage), from, to);
+                }
+            } else {
+                int planes[][] = new int[images.length][];
+                for (int j = 0; j < images.length; j++) {
+                    planes[j] = Planes.Ints(images[j]);
+                }
+                Reconstructor.CombineInts(planes, elements, prime, Planes.Ints(results[i].shareImage), from, to);
+            }
+        });
+        return results;
+    }
+
+    /**
+     * Field element of an integer
+     *
+     * @param x
+     * @return x mod q, or x itself in GF(2^8)
+     */
+    private int Element(int x) {
+        if (prime == BinaryField.ORDER) {
+            if (x < 0 || x >= BinaryField.ORDER) {
+                throw new IllegalArgumentException(x + " is not an element of GF(2^8)");
+            }
+            return x;
+        }
+        return PrimeField.For(prime).Element(x);
+    }
+
+    /**
+     * Downscales a set of shares by SHARE_FACTOR. Each 2x2 block averaged into a
+     * pixel has one set of coefficients, so the results are shares of the secret
+     * downscaled by 2 under the same keys
+     *
+     * @param shares shares of a secret
+     * @return shares of the downscaled secret in the same order
+     */
+    public Share[] Downscale(Share shares[]) {
+        Share downscaled[] = new Share[shares.length];
+        for (int i = 0; i < shares.length; i++) {
+            downscaled[i] = new Share();
+            downscaled[i].keyX = shares[i].keyX;
+            downscaled[i].shareImage = Downscale(shares[i].shareImage, SHARE_FACTOR);
+        }
+        return downscaled;
+    }
+
+    /**
+     * Averages factor x factor blocks of pixels. Pixels of a last partial row or
+     * column of blocks are dropped. A share image only stays a share at
+     * SHARE_FACTOR, other factors are for plain images
+     *
+     * @param source image to downscale
+     * @param factor width and height of a block
+     * @return image of the same type, factor times smaller in both directions
+     */
+    public BufferedImage Downscale(BufferedImage source, int factor) {
+        if (factor < 1 || factor > source.getWidth() || factor > source.getHeight()) {
+            throw new IllegalArgumentException("Cannot downscale a " + source.getWidth() + "x" + source.getHeight()
+                    + " image by " + factor);
+        }
+
+        Frame from = new Frame(source);
+        Frame to = from.Scaled(source.getWidth() / factor, source.getHeight() / factor);
+        int rowsPerTask = Math.max(1, TASK_ROWS / factor);
+        SSS.RunTasks(pool, (to.height + rowsPerTask - 1) / rowsPerTask, task -> {
+            int first = task * rowsPerTask;
+            DownscaleRows(from, to, factor, first, Math.min(first + rowsPerTask, to.height));
+        });
+        return to.Image();
+    }
+
+    /**
+     * Mipmap levels of an image in one pass over it. Level l is the image
+     * downscaled by 2^l and equal to Downscale(source, 2^l). Each task reads its
+     * rows of the source once and builds every level from the block sums of the
+     * level before, so only the source rows are read from memory. Of a share
+     * image only level 1 is a share, deeper levels are for plain images
+     *
+     * @param source image to downscale
+     * @param levels number of levels, each half the size of the one before
+     * @return levels 1 to levels at indices 0 to levels - 1
+     */
+    public BufferedImage[] Pyramid(BufferedImage source, int levels) {
+        if (levels < 1 || source.getWidth() >> levels == 0 || source.getHeight() >> levels == 0) {
+            throw new IllegalArgumentException("Cannot make " + levels + " levels of a " + source.getWidth() + "x"
+                    + source.getHeight() + " image");
+        }
+
+        Frame from = new Frame(source);
+        Frame to[] = new Frame[levels + 1];
+        for (int l = 1; l <= levels; l++) {
+            to[l] = from.Scaled(source.getWidth() >> l, source.getHeight() >> l);
+        }
+
+        // each task covers whole blocks of the coarsest level
+        int coarseRows = to[levels].height;
+        int rowsPerTask = Math.max(1, TASK_ROWS >> levels);
+        SSS.RunTasks(pool, (coarseRows + rowsPerTask - 1) / rowsPerTask, task -> {
+            int first = task * rowsPerTask;
+            PyramidRows(from, to, levels, first, Math.min(first + rowsPerTask, coarseRows));
+        });
+
+        // rows of finer levels below the last whole block of the coarsest level
+        for (int l = 1; l < levels; l++) {
+            DownscaleRows(from, to[l], 1 << l, coarseRows << (levels - l), to[l].height);
+        }
+
+        BufferedImage images[] = new BufferedImage[levels];
+        for (int l = 1; l <= levels; l++) {
+            images[l - 1] = to[l].Image();
+        }
+        return images;
+    }
+
+    /**
+     * Writes rows [first, last) of a downscaled frame
+     *
+     * @param from   source frame
+     * @param to     downscaled frame
+     * @param factor width and height of a block
+     * @param first  first row of to
+     * @param last   row after the last one of to
+     */
+    private void DownscaleRows(Frame from, Frame to, int factor, int first, int last) {
+        int sums[] = new int[to.width * from.channels];
+        for (int y = first; y < last; y++) {
+            Arrays.fill(sums, 0);
+            for (int dy = 0; dy < factor; dy++) {
+                from.AddBlocks(y * factor + dy, factor, to.width, maxSample, sums);
+            }
+            to.WriteRow(y, sums, factor * factor);
+        }
+    }
+
+    /**
+     * Writes the rows of every level covered by rows [first, last) of the coarsest
+     * level. Level 1 sums come from the source and each further level adds up 2x2
+     * sums of the level before
+     *
+     * @param from   source frame
+     * @param to     frame of each level at its level index
+     * @param levels number of levels
+     * @param first  first row of the coarsest level
+     * @param last   row after the last one of the coarsest level
+     */
+    private void PyramidRows(Frame from, Frame to[], int levels, int first, int last) {
+        int channels = from.channels;
+        // sums[l][i] is the i-th row of level l inside the current coarse row
+        int sums[][][] = new int[levels + 1][][];
+        for (int l = 1; l <= levels; l++) {
+            sums[l] = new int[1 << (levels - l)][to[l].width * channels];
+        }
+
+        for (int coarse = first; coarse < last; coarse++) {
+            for (int i = 0; i < sums[1].length; i++) {
+                int y = (coarse << (levels - 1)) + i;
+                Arrays.fill(sums[1][i], 0);
+                from.AddBlocks(2 * y, 2, to[1].width, maxSample, sums[1][i]);
+                from.AddBlocks(2 * y + 1, 2, to[1].width, maxSample, sums[1][i]);
+                to[1].WriteRow(y, sums[1][i], 4);
+            }
+
+            for (int l = 2; l <= levels; l++) {
+                for (int i = 0; i < sums[l].length; i++) {
+                    int top[] = sums[l - 1][2 * i], bottom[] = sums[l - 1][2 * i + 1], row[] = sums[l][i];
+                    for (int x = 0; x < to[l].width; x++) {
+                        for (int c = 0, left = 2 * x * channels; c < channels; c++, left++) {
+                            row[x * channels + c] = top[left] + top[left + channels] + bottom[left]
+                                    + bottom[left + channels];
+                        }
+                    }
+                    to[l].WriteRow((coarse << (levels - l)) + i, row, 1 << (2 * l));
+                }
+            }
+        }
+    }
+
+    /**
+     * Pixels of an image as rows of samples. Byte images are read as bytes per
+     * pixel, int images and everything read through getRGB as 4 byte lanes from
+     * the highest
+     */
+    static class Frame {
+        final BufferedImage image; // null for frames written through setRGB when done
+        final int type, width, height;
+        final int channels; // samples per pixel
+        final byte bytes[]; // byte plane, null otherwise
+        final int ints[]; // int plane or ARGB pixels, null for byte planes
+        final int mask; // byte lanes of ints that hold samples
+        final boolean argb; // ints are getRGB pixels to be written back with setRGB
+
+        /**
+         * Frame reading an existing image
+         *
+         * @param image
+         */
+        Frame(BufferedImage image) {
+            this(image, image.getType(), image.getWidth(), image.getHeight());
+        }
+
+        private Frame(BufferedImage image, int type, int width, int height) {
+            this.type = type;
+            this.width = width;
+            this.height = height;
+
+            if (IsPlain(type) && (image == null || Planes.IsDirect(image))) {
+                this.image = image == null ? new BufferedImage(width, height, type) : image;
+                argb = false;
+                if (Planes.IsBytePlane(this.image)) {
+                    bytes = Planes.Bytes(this.image);
+                    ints = null;
+                    channels = Planes.PixelStride(this.image);
+                    mask = 0;
+                } else {
+                    bytes = null;
+                    ints = Planes.Ints(this.image);
+                    channels = 4;
+                    mask = Planes.IntSampleMask(this.image);
+                }
+            } else {
+                this.image = image;
+                argb = true;
+                bytes = null;
+                ints = image == null ? new int[width * height]
+                        : image.getRGB(0, 0, width, height, null, 0, width);
+                channels = 4;
+                mask = 0xFFFFFFFF;
+            }
+        }
+
+        /**
+         * Checks if samples of an image type are its color values, so averaging the
+         * plane gives the same image as averaging getRGB pixels
+         *
+         * @param type image type
+         * @return
+         */
+        static boolean IsPlain(int type) {
+            return type == BufferedImage.TYPE_3BYTE_BGR || type == BufferedImage.TYPE_4BYTE_ABGR
+                    || type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB
+                    || type == BufferedImage.TYPE_INT_BGR;
+        }
+
+        /**
+         * Empty frame of the same kind for a downscaled image
+         *
+         * @param width
+         * @param height
+         * @return
+         */
+        Frame Scaled(int width, int height) {
+            return new Frame(null, type, width, height);
+        }
+
+        /**
+         * Adds the clamped samples of one source row to the sums of the blocks they
+         * fall into
+         *
+         * @param y         row of this frame
+         * @param factor    width of a block
+         * @param blocks    number of blocks in the row
+         * @param maxSample largest sample value
+         * @param sums      channels sums per block
+         */
+        void AddBlocks(int y, int factor, int blocks, int maxSample, int sums[]) {
+            if (bytes != null) {
+                for (int b = 0, i = y * width * channels; b < blocks; b++) {
+                    for (int dx = 0; dx < factor; dx++) {
+                        for (int c = 0; c < channels; c++, i++) {
+                            sums[b * channels + c] += Math.min(bytes[i] & 0xFF, maxSample);
+                        }
+                    }
+                }
+                return;
+            }
+
+            for (int b = 0, i = y * width; b < blocks; b++) {
+                int s = b * 4;
+                for (int dx = 0; dx < factor; dx++, i++) {
+                    int pixel = ints[i];
+                    sums[s] += Math.min(pixel >>> 24, maxSample);
+                    sums[s + 1] += Math.min((pixel >>> 16) & 0xFF, maxSample);
+                    sums[s + 2] += Math.min((pixel >>> 8) & 0xFF, maxSample);
+                    sums[s + 3] += Math.min(pixel & 0xFF, maxSample);
+                }
+            }
+        }
+
+        /**
+         * Writes a row of block averages
+         *
+         * @param y     row of this frame
+         * @param sums  channel sums per pixel of the row
+         * @param count samples in each sum
+         */
+        void WriteRow(int y, int sums[], int count) {
+            if (bytes != null) {
+                for (int i = 0, o = y * width * channels; i < width * channels; i++, o++) {
+                    bytes[o] = (byte) (sums[i] / count);
+                }
+                return;
+            }
+
+            for (int x = 0, o = y * width; x < width; x++, o++) {
+                int s = x * 4;
+                ints[o] = (sums[s] / count << 24 | sums[s + 1] / count << 16 | sums[s + 2] / count << 8
+                        | sums[s + 3] / count) & mask;
+            }
+        }
+
+        /**
+         * Image holding the frame's pixels
+         *
+         * @return
+         */
+        BufferedImage Image() {
+            if (!argb) {
+                return image;
+            }
+            BufferedImage result = new BufferedImage(width, height,
+                    type == BufferedImage.TYPE_CUSTOM ? BufferedImage.TYPE_INT_ARGB : type);
+            result.setRGB(0, 0, width, height, ints, 0, width);
+            return result;
+        }
+    }
+}
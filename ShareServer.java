@@ -0,0 +1,544 @@
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.*;
+
+import javax.imageio.ImageIO;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * @author My Tran
+ * @version 1.0
+ * @description Local HTTP service for sharing and reconstructing images.
+ *              Requests are handled on virtual threads when the JVM has them
+ *              and on a fixed pool of platform threads otherwise, with waiting
+ *              requests queued instead of given threads. Decoding images and
+ *              field arithmetic run on a bounded ForkJoinPool. Requests beyond
+ *              a limit in flight, or whose bodies would pass a budget of body
+ *              bytes held at once, are turned away with 503.
+ *
+ *              POST /share?k=2&n=5[&field=binary][&seed=s] with an image body
+ *              returns the n share containers, each prefixed by its length as a
+ *              big endian int. POST /reconstruct with at least k containers in
+ *              the same framing returns the secret as a PNG, or a BMP with
+ *              format=bmp. Recent reconstructions are cached by the digests of
+ *              their containers, so popular secrets are only decoded once
+ */
+public class ShareServer {
+    static final int MAX_BODY_BYTES = 64 << 20; // larger requests are rejected with 413
+    static final long CACHE_BYTES = 256L << 20; // encoded reconstructions kept for repeated requests
+    static final int MIN_BODY_BUDGET_BYTES = 4 * MAX_BODY_BYTES; // body budget on small heaps
+
+    private final HttpServer server;
+    private final ExecutorService requests; // threads handling exchanges
+    private final ForkJoinPool cpu; // pool for image decoding and field arithmetic
+    private final Semaphore admissions; // requests allowed in flight
+    private final Semaphore bodyBytes; // bytes of request bodies allowed in memory at once
+    public final boolean virtualThreads; // whether requests run on virtual threads
+    public final ReconstructionCache<byte[]> reconstructions; // encoded secrets of recent /reconstruct requests
+
+    /**
+     * Client errors reported with 400
+     */
+    static class BadRequest extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        BadRequest(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Work run on the CPU pool
+     */
+    interface Computation {
+        byte[] Run() throws IOException, BadRequest;
+    }
+
+    /**
+     * Constructor for ShareServer, bound to the loopback address, with a quarter
+     * of the heap as the budget of body bytes
+     *
+     * @param port        port to listen on, 0 for any free port
+     * @param cpuThreads  threads of the CPU pool
+     * @param maxInFlight requests handled at once before answering 503
+     * @throws IOException
+     */
+    public ShareServer(int port, int cpuThreads, int maxInFlight) throws IOException {
+        this(port, cpuThreads, maxInFlight, (int) Math.min(Integer.MAX_VALUE,
+                Math.max(MIN_BODY_BUDGET_BYTES, Runtime.getRuntime().maxMemory() / 4)));
+    }
+
+    /**
+     * Constructor for ShareServer, bound to the loopback address
+     *
+     * @param port        port to listen on, 0 for any free port
+     * @param cpuThreads  threads of the CPU pool
+     * @param maxInFlight requests handled at once before answering 503
+     * @param bodyBudget  bytes of request bodies held at once before answering
+     *                    503, at least MAX_BODY_BYTES
+     * @throws IOException
+     */
+    public ShareServer(int port, int cpuThreads, int maxInFlight, int bodyBudget) throws IOException {
+        if (bodyBudget < MAX_BODY_BYTES) {
+            throw new IllegalArgumentException("The body budget must fit one body of " + MAX_BODY_BYTES
+                    + " bytes, got " + bodyBudget);
+        }
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), maxInFlight);
+        cpu = new ForkJoinPool(cpuThreads);
+        admissions = new Semaphore(maxInFlight);
+        bodyBytes = new Semaphore(bodyBudget);
+        reconstructions = ReconstructionCache.ByteArrays(CACHE_BYTES);
+
+        ExecutorService virtual = VirtualThreadExecutor();
+        virtualThreads = virtual != null;
+        // without virtual threads a request thread mostly waits on the CPU pool, so a
+        // few per CPU thread keep it busy while the rest of the requests queue
+        requests = virtual != null ? virtual : Executors.newFixedThreadPool(4 * cpuThreads);
+
+        server.setExecutor(requests);
+        server.createContext("/share", exchange -> Handle(exchange, this::Share));
+        server.createContext("/reconstruct", exchange -> Handle(exchange, this::Reconstruct));
+    }
+
+    /**
+     * Executor starting a virtual thread per task, on JVMs that have one
+     *
+     * @return executor, or null before JDK 21
+     */
+    private static ExecutorService VirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Starts accepting requests
+     */
+    public void Start() {
+        server.start();
+        reconstructions.Register("ShareServer:" + Port());
+    }
+
+    /**
+     * Stops accepting requests and shuts the pools down
+     */
+    public void Stop() {
+        server.stop(0);
+        reconstructions.Unregister();
+        requests.shutdown();
+        cpu.shutdown();
+    }
+
+    /**
+     * Port the server listens on
+     *
+     * @return
+     */
+    public int Port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Handler of one endpoint
+     */
+    interface Endpoint {
+        void Handle(HttpExchange exchange, Map<String, String> query, byte body[]) throws IOException, BadRequest;
+    }
+
+    /**
+     * Admits a POST request, reads its body and turns failures into status codes
+     *
+     * @param exchange
+     * @param endpoint
+     * @throws IOException
+     */
+    private void Handle(HttpExchange exchange, Endpoint endpoint) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                Respond(exchange, 405, "Use POST");
+                return;
+            }
+            if (!admissions.tryAcquire()) {
+                Respond(exchange, 503, "Too many requests in flight");
+                return;
+            }
+
+            try {
+                // the body's bytes are reserved before it is read, a body of unknown
+                // length reserves the largest one allowed
+                long declared = DeclaredLength(exchange);
+                if (declared > MAX_BODY_BYTES) {
+                    Respond(exchange, 413, "Body larger than " + MAX_BODY_BYTES + " bytes");
+                    return;
+                }
+                int reserved = declared < 0 ? MAX_BODY_BYTES : (int) declared;
+                if (!bodyBytes.tryAcquire(reserved)) {
+                    Respond(exchange, 503, "Too many request bytes in flight");
+                    return;
+                }
+
+                try {
+                    byte body[] = exchange.getRequestBody().readNBytes(reserved + 1);
+                    if (body.length > reserved) {
+                        Respond(exchange, 413, "Body larger than " + reserved + " bytes");
+                        return;
+                    }
+                    endpoint.Handle(exchange, Query(exchange), body);
+                } finally {
+                    bodyBytes.release(reserved);
+                }
+            } catch (BadRequest | IllegalArgumentException e) {
+                Respond(exchange, 400, e.getMessage());
+            } catch (IOException | RuntimeException e) {
+                Respond(exchange, 500, e.toString());
+            } finally {
+                admissions.release();
+            }
+        }
+    }
+
+    /**
+     * Length of the request body from its Content-Length header
+     *
+     * @param exchange
+     * @return length, -1 when the header is missing
+     * @throws BadRequest if the header is not a length
+     */
+    private static long DeclaredLength(HttpExchange exchange) throws BadRequest {
+        String header = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (header == null) {
+            return -1;
+        }
+        try {
+            long length = Long.parseLong(header.trim());
+            if (length < 0) {
+                throw new BadRequest("Negative Content-Length " + header);
+            }
+            return length;
+        } catch (NumberFormatException e) {
+            throw new BadRequest("Content-Length " + header + " is not a number");
+        }
+    }
+
+    /**
+     * POST /share
+     *
+     * @param exchange
+     * @param query
+     * @param body     image to share
+     * @throws IOException
+     * @throws BadRequest
+     */
+    private void Share(HttpExchange exchange, Map<String, String> query, byte body[])
+            throws IOException, BadRequest {
+        int k = Integer.parseInt(query.getOrDefault("k", "2"));
+        int n = Integer.parseInt(query.getOrDefault("n", "5"));
+        if (k < 2 || n < k || n > 250) {
+            throw new BadRequest("Need 2 <= k <= n <= 250, got k = " + k + ", n = " + n);
+        }
+        boolean binary = "binary".equals(query.get("field"));
+        String seed = query.get("seed");
+
+        byte response[] = Compute(() -> {
+            BufferedImage image;
+            try {
+                image = ImageIO.read(new ByteArrayInputStream(body));
+            } catch (IOException | RuntimeException e) {
+                throw new BadRequest("Body is not a readable image: " + e.getMessage());
+            }
+            if (image == null) {
+                throw new BadRequest("Body is not a readable image");
+            }
+
+            SSS secretSharing = new SSS(Planes.Standardize(image), k, n);
+            secretSharing.SetArithmetic(binary ? SSS.Arithmetic.BINARY : SSS.Arithmetic.PRIME);
+            secretSharing.SetParallelism(cpu);
+            if (seed != null) {
+                secretSharing.SetSeed(Long.parseLong(seed));
+            }
+            secretSharing.CreateShares();
+
+            List<byte[]> containers = new ArrayList<>();
+            for (Share share : secretSharing.GetShares()) {
+                containers.add(ShareFile.ToBytes(share, k, n, secretSharing.primeField));
+            }
+            return Frame(containers);
+        });
+
+        exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+        Send(exchange, 200, response);
+    }
+
+    /**
+     * POST /reconstruct
+     *
+     * @param exchange
+     * @param query
+     * @param body     at least k framed share containers
+     * @throws IOException
+     * @throws BadRequest
+     */
+    private void Reconstruct(HttpExchange exchange, Map<String, String> query, byte body[])
+            throws IOException, BadRequest {
+        String format = query.getOrDefault("format", "png");
+        if (!format.equals("png") && !format.equals("bmp")) {
+            throw new BadRequest("Unknown format " + format);
+        }
+
+        byte response[] = Compute(() -> {
+            List<ByteBuffer> used = Select(Unframe(body));
+            return reconstructions.Get(ContentKey(used, format), () -> Reconstruct(used, format));
+        });
+
+        exchange.getResponseHeaders().set("Content-Type", "image/" + format);
+        Send(exchange, 200, response);
+    }
+
+    /**
+     * Validates the share containers of a request and picks the k with the
+     * smallest keys, so the same shares sent in any order or with extra ones
+     * reconstruct from the same subset
+     *
+     * @param containers share containers of the request
+     * @return k containers ordered by key
+     * @throws BadRequest if the shares are missing, corrupt, repeat a key or do
+     *                    not belong together
+     */
+    static List<ByteBuffer> Select(List<ByteBuffer> containers) throws BadRequest {
+        if (containers.isEmpty()) {
+            throw new BadRequest("No shares in body");
+        }
+
+        ShareFile shares[] = new ShareFile[containers.size()];
+        Integer order[] = new Integer[shares.length];
+        try {
+            for (int i = 0; i < shares.length; i++) {
+                shares[i] = ShareFile.Wrap(containers.get(i));
+                if (shares[i].Validate() >= 0) {
+                    throw new BadRequest("Share with key " + shares[i].keyX + " is corrupt");
+                }
+                order[i] = i;
+            }
+            int k = shares[0].k;
+            if (shares.length < k) {
+                throw new BadRequest("Need " + k + " shares, got " + shares.length);
+            }
+
+            Arrays.sort(order, Comparator.comparingInt(i -> shares[i].keyX));
+            ShareFile chosen[] = new ShareFile[k];
+            List<ByteBuffer> used = new ArrayList<>(k);
+            for (int i = 0; i < k; i++) {
+                if (i > 0 && shares[order[i]].keyX == shares[order[i - 1]].keyX) {
+                    throw new BadRequest("Two shares have the key " + shares[order[i]].keyX);
+                }
+                chosen[i] = shares[order[i]];
+                used.add(containers.get(order[i]));
+            }
+            // checks the chosen shares come from one scheme and image
+            ShareFile.Weights(chosen);
+            return used;
+        } catch (IOException | RuntimeException e) {
+            throw new BadRequest(e.getMessage());
+        }
+    }
+
+    /**
+     * Reconstructs the encoded secret from containers picked by Select
+     *
+     * @param containers k validated share containers
+     * @param format     image format of the result
+     * @return
+     */
+    private static byte[] Reconstruct(List<ByteBuffer> containers, String format) {
+        try {
+            ShareFile shares[] = new ShareFile[containers.size()];
+            for (int i = 0; i < shares.length; i++) {
+                shares[i] = ShareFile.Wrap(containers.get(i));
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write(ShareFile.Reconstruct(shares), format, out);
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Cache key of a reconstruction from the SHA-256 of each container it uses
+     *
+     * @param containers containers picked by Select
+     * @param format     image format of the result
+     * @return
+     */
+    static ReconstructionCache.Key ContentKey(List<ByteBuffer> containers, String format) {
+        MessageDigest sha;
+        try {
+            sha = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        byte digests[][] = new byte[containers.size()][];
+        for (int i = 0; i < digests.length; i++) {
+            sha.update(containers.get(i).duplicate());
+            digests[i] = sha.digest();
+        }
+        // results are cached encoded, so the format tells them apart instead of a scale
+        return ReconstructionCache.Key.OfContent(digests, format.equals("png") ? 0 : 1);
+    }
+
+    /**
+     * Runs a computation on the CPU pool and waits for it. The waiting thread is
+     * a request thread, so CPU work never runs on more than the pool's threads
+     *
+     * @param computation
+     * @return
+     * @throws IOException
+     * @throws BadRequest
+     */
+    private byte[] Compute(Computation computation) throws IOException, BadRequest {
+        Object outcome;
+        try {
+            // exceptions come back as the result, the pool would wrap checked ones
+            outcome = cpu.submit(() -> {
+                try {
+                    return computation.Run();
+                } catch (IOException | BadRequest | RuntimeException e) {
+                    return e;
+                }
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the CPU pool");
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+
+        if (outcome instanceof BadRequest) {
+            throw (BadRequest) outcome;
+        }
+        if (outcome instanceof IOException) {
+            throw (IOException) outcome;
+        }
+        if (outcome instanceof RuntimeException) {
+            throw (RuntimeException) outcome;
+        }
+        return (byte[]) outcome;
+    }
+
+    /**
+     * Joins containers, each prefixed by its length as a big endian int
+     *
+     * @param containers
+     * @return
+     */
+    static byte[] Frame(List<byte[]> containers) {
+        int size = 0;
+        for (byte container[] : containers) {
+            size += 4 + container.length;
+        }
+
+        ByteBuffer framed = ByteBuffer.allocate(size);
+        for (byte container[] : containers) {
+            framed.putInt(container.length).put(container);
+        }
+        return framed.array();
+    }
+
+    /**
+     * Splits framed containers without copying them
+     *
+     * @param framed
+     * @return a buffer over each container
+     * @throws BadRequest if a length runs past the end
+     */
+    static List<ByteBuffer> Unframe(byte framed[]) throws BadRequest {
+        List<ByteBuffer> containers = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.wrap(framed);
+        while (buffer.hasRemaining()) {
+            if (buffer.remaining() < 4) {
+                throw new BadRequest("Truncated share length");
+            }
+            int length = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) {
+                throw new BadRequest("Share length " + length + " runs past the body");
+            }
+            containers.add(buffer.slice().limit(length));
+            buffer.position(buffer.position() + length);
+        }
+        return containers;
+    }
+
+    /**
+     * Parses the query string of a request
+     *
+     * @param exchange
+     * @return
+     */
+    private static Map<String, String> Query(HttpExchange exchange) {
+        Map<String, String> query = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw != null) {
+            for (String pair : raw.split("&")) {
+                int equals = pair.indexOf('=');
+                if (equals > 0) {
+                    query.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                            URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return query;
+    }
+
+    /**
+     * Sends a plain text response
+     *
+     * @param exchange
+     * @param status
+     * @param message
+     * @throws IOException
+     */
+    private static void Respond(HttpExchange exchange, int status, String message) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        Send(exchange, status, String.valueOf(message).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Sends a response with a known length
+     *
+     * @param exchange
+     * @param status
+     * @param body
+     * @throws IOException
+     */
+    private static void Send(HttpExchange exchange, int status, byte body[]) throws IOException {
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            exchange.getResponseBody().write(body);
+        }
+    }
+
+    public static void main(String args[]) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        int cpuThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int maxInFlight = args.length > 2 ? Integer.parseInt(args[2]) : 256;
+
+        ShareServer server = new ShareServer(port, cpuThreads, maxInFlight);
+        server.Start();
+        System.out.println("Listening on http://localhost:" + server.Port() + " with "
+                + (server.virtualThreads ? "virtual threads" : "platform request threads") + " and " + cpuThreads
+                + " CPU threads");
+    }
+}
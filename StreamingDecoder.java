@@ -0,0 +1,123 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.*;
+
+/**
+ * @author My Tran
+ * @version 1.0
+ * @description Reconstructs a secret BMP from k share BMP files by reading the
+ *              shares in lockstep strips of rows and writing each recovered
+ *              strip to the output as soon as it is interpolated. Memory only
+ *              depends on the strip size, not the image size
+ */
+public class StreamingDecoder {
+    public int primeField = 251; // prime field q
+    private int stripBytes = 1 << 18; // target size of one strip of one share
+
+    /**
+     * Set the size of the strips read from each share. Strips always hold at least
+     * one row
+     *
+     * @param bytes target strip size in bytes
+     */
+    public void SetStripBytes(int bytes) {
+        if (bytes < 1) {
+            throw new IllegalArgumentException("Strip size must be positive, got " + bytes);
+        }
+        stripBytes = bytes;
+    }
+
+    /**
+     * Reconstructs the secret into a file
+     *
+     * @param sharePaths k share files created with the same layout
+     * @param keys       x key of each share, lined up with sharePaths
+     * @param output     file to write the secret to, replaced if it exists
+     * @throws IOException
+     */
+    public void Decode(Path sharePaths[], int keys[], Path output) throws IOException {
+        try (FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            Decode(sharePaths, keys, out);
+        }
+    }
+
+    /**
+     * Reconstructs the secret into a channel. The BMP header is written first,
+     * then the pixel data strip by strip in file order
+     *
+     * @param sharePaths k share files created with the same layout
+     * @param keys       x key of each share, lined up with sharePaths
+     * @param out        channel receiving the secret BMP, left open
+     * @throws IOException
+     */
+    public void Decode(Path sharePaths[], int keys[], WritableByteChannel out) throws IOException {
+        if (sharePaths.length != keys.length) {
+            throw new IllegalArgumentException(sharePaths.length + " share files given for " + keys.length + " keys");
+        }
+
+        BmpFile shares[] = new BmpFile[sharePaths.length];
+        try {
+            for (int i = 0; i < shares.length; i++) {
+                shares[i] = BmpFile.Open(sharePaths[i]);
+                if (!shares[i].SameLayout(shares[0])) {
+                    throw new IOException(sharePaths[i] + " does not have the layout of " + sharePaths[0]);
+                }
+            }
+            DecodeStrips(shares, Reconstructor.Weights(keys, primeField), out);
+        } finally {
+            for (BmpFile share : shares) {
+                if (share != null) {
+                    share.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Interpolates and writes the pixel data one strip at a time
+     *
+     * @param shares  open share files with the same layout
+     * @param weights Lagrange weights lined up with shares
+     * @param out     channel receiving the secret BMP
+     * @throws IOException
+     */
+    private void DecodeStrips(BmpFile shares[], int weights[], WritableByteChannel out) throws IOException {
+        BmpFile layout = shares[0];
+        WriteFully(out, layout.header, layout.header.length);
+
+        int stripRows = Math.max(1, stripBytes / layout.rowBytes);
+        byte shareStrips[][] = new byte[shares.length][stripRows * layout.rowBytes];
+        byte secretStrip[] = new byte[stripRows * layout.rowBytes];
+
+        // bytes are interpolated independently, so rows are taken in file order and
+        // padding simply interpolates to 0
+        for (int storedRow = 0; storedRow < layout.height; storedRow += stripRows) {
+            int rows = Math.min(stripRows, layout.height - storedRow);
+            int length = rows * layout.rowBytes;
+
+            for (int i = 0; i < shares.length; i++) {
+                shares[i].ReadStoredRows(storedRow, rows, shareStrips[i]);
+            }
+            Reconstructor.Combine(shareStrips, weights, primeField, secretStrip, 0, length);
+            WriteFully(out, secretStrip, length);
+        }
+    }
+
+    /**
+     * Writes the start of an array to a channel
+     *
+     * @param out
+     * @param bytes
+     * @param length
+     * @throws IOException
+     */
+    private static void WriteFully(WritableByteChannel out, byte bytes[], int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, length);
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+}
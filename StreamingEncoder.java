@@ -0,0 +1,180 @@
+import java.io.*;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * @author My Tran
+ * @version 1.0
+ * @description Creates share BMP files from a secret BMP file a strip of rows
+ *              at a time, so memory is bounded by the strip size times n
+ *              instead of the image size. Keys and coefficients are drawn the
+ *              same way as SSS, so for the same seed the share files hold the
+ *              same pixels as the shares SSS creates in memory
+ */
+public class StreamingEncoder {
+    public int k, n; // SSS scheme values. k-1 is the polynomial degree. n is the number of shares
+    public int primeField = 251; // prime field q
+    private boolean seeded = false; // whether seed was set or ChaCha20 is used
+    private long seed;
+    private int stripBands = 1; // bands of SSS.BAND_BLOCK_ROWS block rows read per strip
+
+    /**
+     * Constructor for StreamingEncoder
+     *
+     * @param degree    polynomial degree is k-1 for scheme
+     * @param numShares number of shares produced from scheme
+     */
+    public StreamingEncoder(int degree, int numShares) {
+        k = degree;
+        n = numShares;
+    }
+
+    /**
+     * Seed the random number generator so Encode is reproducible
+     *
+     * @param seed seed for keys and coefficients
+     */
+    public void SetSeed(long seed) {
+        this.seed = seed;
+        seeded = true;
+    }
+
+    /**
+     * Set how many bands of block rows are read and written at a time
+     *
+     * @param bands strip height in bands of SSS.BAND_BLOCK_ROWS rows of 2x2 blocks
+     */
+    public void SetStripBands(int bands) {
+        if (bands < 1) {
+            throw new IllegalArgumentException("A strip needs at least one band, got " + bands);
+        }
+        stripBands = bands;
+    }
+
+    /**
+     * Encrypts a secret BMP into n share BMPs with the same layout
+     *
+     * @param secretPath uncompressed 24 or 32 bit BMP to share
+     * @param sharePaths n files to write the shares to
+     * @return x key of each share, lined up with sharePaths
+     * @throws IOException
+     */
+    public int[] Encode(Path secretPath, Path sharePaths[]) throws IOException {
+        if (sharePaths.length != n) {
+            throw new IllegalArgumentException("Expected " + n + " share files, got " + sharePaths.length);
+        }
+
+        // same draw order as SSS.CreateShares: band streams first, then keys.
+        // Unseeded runs use ChaCha20 like SSS does
+        ChaCha20Random drbg = seeded ? null : ChaCha20Random.FromSecureRandom();
+        Random rng = seeded ? new Random(seed) : drbg;
+        SplittableRandom bandStreams = new SplittableRandom(rng.nextLong());
+        int keys[] = SSS.DrawKeys(rng, n, primeField);
+
+        BmpFile shares[] = new BmpFile[n];
+        try (BmpFile secret = BmpFile.Open(secretPath)) {
+            for (int i = 0; i < n; i++) {
+                shares[i] = BmpFile.Create(sharePaths[i], secret);
+            }
+            EncodeStrips(secret, shares, keys, bandStreams, drbg);
+        } finally {
+            for (BmpFile share : shares) {
+                if (share != null) {
+                    share.close();
+                }
+            }
+        }
+
+        return keys;
+    }
+
+    /**
+     * Reads, encrypts and writes the secret one strip at a time. Rows left over
+     * from odd sizes stay 0 like in SSS
+     *
+     * @param secret      secret file
+     * @param shares      share files with the secret's layout
+     * @param keys        x keys lined up with shares
+     * @param bandStreams stream the seed of each band is split off in order
+     * @param drbg        generator whose stream b + 1 holds the coefficients of
+     *                    band b, null when seeded
+     * @throws IOException
+     */
+    private void EncodeStrips(BmpFile secret, BmpFile shares[], int keys[], SplittableRandom bandStreams,
+            ChaCha20Random drbg) throws IOException {
+        int blocksPerRow = secret.width / 2, blockRows = secret.height / 2;
+        int stripBlockRows = stripBands * SSS.BAND_BLOCK_ROWS;
+        int pixelStride = secret.bytesPerPixel;
+        int blockStride = 2 * pixelStride;
+        int maxSecret = primeField - 1;
+        // the padding byte of 32 bit pixels without alpha stays 0, as SSS masks it
+        boolean sampleBytes[] = new boolean[blockStride];
+        for (int b = 0; b < blockStride; b++) {
+            sampleBytes[b] = secret.sampleBytes[b % pixelStride];
+        }
+        PrimeField field = PrimeField.For(primeField);
+
+        // every buffer is sized for one strip and reused for the next
+        byte source[] = new byte[2 * stripBlockRows * secret.rowBytes];
+        byte targets[][] = new byte[n][source.length];
+        int coefficients[][] = new int[stripBlockRows * blocksPerRow][k - 1];
+        int powers[][] = new int[n][k - 1];
+        int terms[] = new int[n];
+        for (int s = 0; s < n; s++) {
+            Polynomial.PowerTable(keys[s], k - 1, field, powers[s]);
+        }
+
+        for (int firstBlockRow = 0; firstBlockRow < blockRows; firstBlockRow += stripBlockRows) {
+            int stripRows = Math.min(stripBlockRows, blockRows - firstBlockRow);
+            int rows = 2 * stripRows;
+
+            // draw coefficients band by band as SSS.FillCoefficients does
+            for (int band = 0; band * SSS.BAND_BLOCK_ROWS < stripRows; band++) {
+                SplittableRandom random = new SplittableRandom(bandStreams.split().nextLong());
+                ChaCha20Random stream = drbg == null ? null
+                        : drbg.Stream(firstBlockRow / SSS.BAND_BLOCK_ROWS + band + 1);
+                int lastBlock = Math.min((band + 1) * SSS.BAND_BLOCK_ROWS, stripRows) * blocksPerRow;
+                for (int l = band * SSS.BAND_BLOCK_ROWS * blocksPerRow; l < lastBlock; l++) {
+                    for (int j = 0; j < k - 1; j++) {
+                        coefficients[l][j] = stream != null ? stream.NextElement(1, 249) : random.nextInt(249) + 1;
+                    }
+                }
+            }
+
+            secret.ReadRows(2 * firstBlockRow, rows, source);
+
+            for (int i = 0, l = 0; i < stripRows; i++) {
+                int topRow = secret.RowOffset(2 * i, rows);
+                int bottomRow = secret.RowOffset(2 * i + 1, rows);
+
+                for (int j = 0; j < blocksPerRow; j++, l++) {
+                    for (int s = 0; s < n; s++) {
+                        terms[s] = Polynomial.Table(coefficients[l], powers[s], field);
+                    }
+                    int top = topRow + j * blockStride;
+                    int bottom = bottomRow + j * blockStride;
+
+                    for (int s = 0; s < n; s++) {
+                        byte target[] = targets[s];
+                        int shareTerms = terms[s];
+
+                        for (int b = 0; b < blockStride; b++) {
+                            if (!sampleBytes[b]) {
+                                continue;
+                            }
+                            int secretTop = Math.min(source[top + b] & 0xFF, maxSecret);
+                            int secretBottom = Math.min(source[bottom + b] & 0xFF, maxSecret);
+                            target[top + b] = (byte) field.Add(secretTop, shareTerms);
+                            target[bottom + b] = (byte) field.Add(secretBottom, shareTerms);
+                        }
+                    }
+                }
+            }
+
+            for (int s = 0; s < n; s++) {
+                shares[s].WriteRows(2 * firstBlockRow, rows, targets[s]);
+            }
+        }
+    }
+}
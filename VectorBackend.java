@@ -0,0 +1,66 @@
+/**
+ * @author My Tran
+ * @version 1.0
+ * @description Byte plane kernels that process a whole vector register of bytes
+ *              per step. The implementation in vector/VectorKernels.java needs
+ *              the jdk.incubator.vector module to compile and run, so it is
+ *              loaded by name and AVAILABLE is null when it is missing. Callers
+ *              then use their scalar loops
+ */
+public interface VectorBackend {
+    VectorBackend AVAILABLE = Load();
+
+    /**
+     * Loads the vector kernels if they were compiled and the JVM was started with
+     * --add-modules jdk.incubator.vector
+     *
+     * @return kernels, or null to use the scalar code
+     */
+    private static VectorBackend Load() {
+        try {
+            return (VectorBackend) Class.forName("VectorKernels").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Bytes processed per vector step
+     *
+     * @return
+     */
+    int Lanes();
+
+    /**
+     * Checks if the kernels handle a field
+     *
+     * @param prime prime field q, or BinaryField.ORDER for GF(2^8)
+     * @return
+     */
+    boolean Supports(int prime);
+
+    /**
+     * Adds polynomial terms to a run of secret bytes. Mod q the secret bytes are
+     * first set to at most q - 1, in GF(2^8) the terms are XORed in
+     *
+     * @param source byte plane of the secret
+     * @param offset index of the first byte of the run in source and target
+     * @param terms  terms to add, one per byte of the run
+     * @param target byte plane of the share
+     * @param prime  prime field q, or BinaryField.ORDER for GF(2^8)
+     */
+    void AddTerms(byte source[], int offset, byte terms[], byte target[], int prime);
+
+    /**
+     * Interpolates f(0) for every byte in [from, to), giving the same bytes as
+     * Reconstructor.Combine
+     *
+     * @param shareBytes bytes of each share, one array per weight
+     * @param weights    weights from Reconstructor.Weights
+     * @param prime      prime field q, or BinaryField.ORDER for GF(2^8)
+     * @param out        array receiving the reconstructed bytes
+     * @param from       first index to reconstruct
+     * @param to         index after the last byte to reconstruct
+     */
+    void Combine(byte shareBytes[][], int weights[], int prime, byte out[], int from, int to);
+}
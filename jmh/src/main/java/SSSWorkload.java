@@ -0,0 +1,105 @@
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import benchmarks.Workload;
+
+/**
+ * @author My Tran
+ * @version 1.0
+ * @description Workload of the JMH benchmarks on the SSS classes. Lives in the
+ *              default package like them and is loaded by Workload.Load
+ */
+public class SSSWorkload implements Workload {
+    private SSS secretSharing;
+    private BufferedImage secretImage, decrypted;
+    private Share shares[];
+    private ForkJoinPool pool; // null when the operations run on the calling thread
+    private PrimeField field = PrimeField.For(251); // tables of the last prime asked for
+
+    @Override
+    public void Setup(int size, int k, int n, int threads) throws IOException {
+        secretImage = new BufferedImage(size, size, BufferedImage.TYPE_3BYTE_BGR);
+        Random random = new Random(0);
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                secretImage.setRGB(x, y, random.nextInt());
+            }
+        }
+
+        pool = threads == 0 ? null : new ForkJoinPool(threads);
+        secretSharing = new SSS(secretImage, k, n);
+        secretSharing.SetParallelism(pool);
+        secretSharing.SetSeed(0);
+        secretSharing.CreateShares();
+        shares = secretSharing.GetShares();
+        decrypted = secretSharing.DecryptSecret(shares);
+    }
+
+    @Override
+    public void TearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Override
+    public void CreateShares() throws IOException {
+        secretSharing.CreateShares();
+    }
+
+    @Override
+    public Object DecryptSecret() throws IOException {
+        return secretSharing.DecryptSecret(shares);
+    }
+
+    @Override
+    public Object Downscale() throws IOException {
+        return secretSharing.Downscale(shares[0].shareImage);
+    }
+
+    @Override
+    public long MeanAverageError() throws IOException {
+        return secretSharing.MeanAverageError(secretImage, decrypted);
+    }
+
+    @Override
+    public int Mod(int dividend, int divisor) {
+        return Modulo.Mod(dividend, divisor);
+    }
+
+    @Override
+    public int InverseMod(int dividend, int modulo) {
+        return Modulo.InverseMod(dividend, modulo);
+    }
+
+    @Override
+    public int Reduce(int x, int prime) {
+        return Field(prime).Reduce(x);
+    }
+
+    @Override
+    public int Mul(int a, int b, int prime) {
+        return Field(prime).Mul(a, b);
+    }
+
+    @Override
+    public int Inv(int a, int prime) {
+        return Field(prime).Inv(a);
+    }
+
+    /**
+     * Tables of a prime field, kept so the timed calls skip the lookup in
+     * PrimeField.For
+     *
+     * @param prime q
+     * @return
+     */
+    private PrimeField Field(int prime) {
+        if (field.prime != prime) {
+            field = PrimeField.For(prime);
+        }
+        return field;
+    }
+}
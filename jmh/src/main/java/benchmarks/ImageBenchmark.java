@@ -0,0 +1,66 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * @author My Tran
+ * @version 1.0
+ * @description Average time of the image operations of SSS over secret size,
+ *              scheme and pool size. threads = 0 runs without a pool. Narrow the
+ *              grid from the command line, e.g. -p size=1024 -p threads=0,8
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ImageBenchmark {
+    @Param({ "256", "1024" })
+    public int size; // width and height of the secret
+
+    @Param({ "2", "3" })
+    public int k;
+
+    @Param({ "5", "10" })
+    public int n;
+
+    @Param({ "0", "4" })
+    public int threads;
+
+    private Workload workload;
+
+    @Setup(Level.Trial)
+    public void Setup() throws IOException {
+        workload = Workload.Load();
+        workload.Setup(size, k, n, threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void TearDown() {
+        workload.TearDown();
+    }
+
+    @Benchmark
+    public void CreateShares() throws IOException {
+        workload.CreateShares();
+    }
+
+    @Benchmark
+    public Object DecryptSecret() throws IOException {
+        return workload.DecryptSecret();
+    }
+
+    @Benchmark
+    public Object Downscale() throws IOException {
+        return workload.Downscale();
+    }
+
+    @Benchmark
+    public long MeanAverageError() throws IOException {
+        return workload.MeanAverageError();
+    }
+}
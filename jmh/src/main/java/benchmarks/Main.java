@@ -0,0 +1,27 @@
+package benchmarks;
+
+import java.util.Arrays;
+
+/**
+ * @author My Tran
+ * @version 1.0
+ * @description Entry point of benchmarks.jar. Runs JMH with its usual command
+ *              line, writing results as JSON to jmh-result.json unless -rf or
+ *              -rff say otherwise
+ */
+public class Main {
+    public static void main(String args[]) throws Exception {
+        String options[] = args;
+        if (!Arrays.asList(args).contains("-rf")) {
+            options = Arrays.copyOf(args, args.length + 2);
+            options[args.length] = "-rf";
+            options[args.length + 1] = "json";
+        }
+        if (!Arrays.asList(args).contains("-rff")) {
+            options = Arrays.copyOf(options, options.length + 2);
+            options[options.length - 2] = "-rff";
+            options[options.length - 1] = "jmh-result.json";
+        }
+        org.openjdk.jmh.Main.main(options);
+    }
+}
@@ -0,0 +1,109 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * @author My Tran
+ * @version 1.0
+ * @description Time per call of Modulo.Mod and Modulo.InverseMod on random
+ *              operands, next to the PrimeField tables that replaced them on the
+ *              hot paths. Mod and Reduce get sums of k products like the ones
+ *              reconstruction reduces, and Mod negative values for its slow path
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModuloBenchmark {
+    static final int OPERANDS = 1 << 12;
+
+    @Param({ "251" })
+    public int prime;
+
+    @Param({ "2", "5" })
+    public int k; // products summed into each Mod operand
+
+    private Workload workload;
+    private int sums[], signed[], elements[], others[];
+
+    @Setup(Level.Trial)
+    public void Setup() {
+        workload = Workload.Load();
+        Random random = new Random(0);
+        sums = new int[OPERANDS];
+        signed = new int[OPERANDS];
+        elements = new int[OPERANDS];
+        others = new int[OPERANDS];
+        for (int i = 0; i < OPERANDS; i++) {
+            sums[i] = random.nextInt(k * prime * prime);
+            signed[i] = random.nextInt(2 * k * prime * prime) - k * prime * prime;
+            elements[i] = random.nextInt(prime - 1) + 1;
+            others[i] = random.nextInt(prime);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERANDS)
+    public int Mod() {
+        int total = 0;
+        for (int i = 0; i < OPERANDS; i++) {
+            total += workload.Mod(sums[i], prime);
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERANDS)
+    public int ModNegative() {
+        int total = 0;
+        for (int i = 0; i < OPERANDS; i++) {
+            total += workload.Mod(signed[i], prime);
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERANDS)
+    public int InverseMod() {
+        int total = 0;
+        for (int i = 0; i < OPERANDS; i++) {
+            total += workload.InverseMod(elements[i], prime);
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERANDS)
+    public int PrimeFieldReduce() {
+        int total = 0;
+        for (int i = 0; i < OPERANDS; i++) {
+            total += workload.Reduce(sums[i], prime);
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERANDS)
+    public int PrimeFieldMul() {
+        int total = 0;
+        for (int i = 0; i < OPERANDS; i++) {
+            total += workload.Mul(elements[i], others[i], prime);
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERANDS)
+    public int PrimeFieldInv() {
+        int total = 0;
+        for (int i = 0; i < OPERANDS; i++) {
+            total += workload.Inv(elements[i], prime);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,98 @@
+package benchmarks;
+
+import java.io.IOException;
+
+/**
+ * @author My Tran
+ * @version 1.0
+ * @description Operations the benchmarks time. JMH only generates code for
+ *              benchmarks in a named package and a named package cannot import
+ *              the SSS classes from the default package, so the calls go
+ *              through this interface and SSSWorkload, which is loaded by name
+ */
+public interface Workload {
+
+    /**
+     * Loads the workload implemented next to the SSS classes
+     *
+     * @return
+     */
+    static Workload Load() {
+        try {
+            return (Workload) Class.forName("SSSWorkload").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("SSSWorkload is not on the class path", e);
+        }
+    }
+
+    /**
+     * Creates a random secret image, shares it and reconstructs it once so every
+     * operation has its inputs ready
+     *
+     * @param size    width and height of the secret in pixels
+     * @param k       shares needed to reconstruct
+     * @param n       shares created
+     * @param threads pool size, 0 to run on the calling thread
+     * @throws IOException
+     */
+    void Setup(int size, int k, int n, int threads) throws IOException;
+
+    /**
+     * Shuts down the pool made by Setup, if any
+     */
+    void TearDown();
+
+    void CreateShares() throws IOException;
+
+    /**
+     * @return the reconstructed image
+     * @throws IOException
+     */
+    Object DecryptSecret() throws IOException;
+
+    /**
+     * Downscales the first share
+     *
+     * @return the downscaled image
+     * @throws IOException
+     */
+    Object Downscale() throws IOException;
+
+    /**
+     * @return mean average error between the secret and its reconstruction
+     * @throws IOException
+     */
+    long MeanAverageError() throws IOException;
+
+    int Mod(int dividend, int divisor);
+
+    int InverseMod(int dividend, int modulo);
+
+    /**
+     * PrimeField.Reduce of the field's shared tables
+     *
+     * @param x     value of at least 0
+     * @param prime q
+     * @return
+     */
+    int Reduce(int x, int prime);
+
+    /**
+     * PrimeField.Mul of the field's shared tables
+     *
+     * @param a
+     * @param b
+     * @param prime q
+     * @return
+     */
+    int Mul(int a, int b, int prime);
+
+    /**
+     * PrimeField.Inv of the field's shared tables
+     *
+     * @param a     non-zero element
+     * @param prime q
+     * @return
+     */
+    int Inv(int a, int prime);
+}
@@ -0,0 +1,143 @@
+import jdk.incubator.vector.*;
+
+/**
+ * @author My Tran
+ * @version 1.0
+ * @description Vector API implementation of VectorBackend for q = 251 and
+ *              GF(2^8), using the widest vectors the CPU has. Kept out of the
+ *              main sources because it only compiles with the incubator module:
+ *
+ *              javac --add-modules jdk.incubator.vector -cp . -d . vector/VectorKernels.java
+ *              java --add-modules jdk.incubator.vector ...
+ */
+public class VectorKernels implements VectorBackend {
+    private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    // bytes that widen into one vector of ints
+    private static final VectorSpecies<Byte> INT_BYTES = VectorSpecies.of(byte.class,
+            VectorShape.forBitSize(INTS.length() * Byte.SIZE));
+    private static final int PRIME = 251;
+    private static final int FOLD = 256 - PRIME; // 2^8 = FOLD mod q
+
+    @Override
+    public int Lanes() {
+        return BYTES.length();
+    }
+
+    @Override
+    public boolean Supports(int prime) {
+        return prime == PRIME || prime == BinaryField.ORDER;
+    }
+
+    @Override
+    public void AddTerms(byte source[], int offset, byte terms[], byte target[], int prime) {
+        int length = terms.length;
+        int bound = BYTES.loopBound(length);
+
+        if (prime == BinaryField.ORDER) {
+            for (int i = 0; i < bound; i += BYTES.length()) {
+                ByteVector.fromArray(BYTES, source, offset + i).lanewise(VectorOperators.XOR,
+                        ByteVector.fromArray(BYTES, terms, i)).intoArray(target, offset + i);
+            }
+            for (int i = bound; i < length; i++) {
+                target[offset + i] = (byte) (source[offset + i] ^ terms[i]);
+            }
+            return;
+        }
+
+        byte maxSecret = (byte) (PRIME - 1);
+        for (int i = 0; i < bound; i += BYTES.length()) {
+            ByteVector secret = ByteVector.fromArray(BYTES, source, offset + i);
+            secret = secret.blend(maxSecret, secret.compare(VectorOperators.UNSIGNED_GT, maxSecret));
+            ByteVector term = ByteVector.fromArray(BYTES, terms, i);
+
+            // the sum wraps at 256 but the result is below q, so comparing the secret
+            // with q - term tells whether q has to come off
+            VectorMask<Byte> wraps = secret.compare(VectorOperators.UNSIGNED_GE,
+                    ByteVector.broadcast(BYTES, (byte) PRIME).sub(term));
+            secret.add(term).lanewise(VectorOperators.SUB, (byte) PRIME, wraps).intoArray(target, offset + i);
+        }
+        for (int i = bound; i < length; i++) {
+            int sum = Math.min(source[offset + i] & 0xFF, PRIME - 1) + (terms[i] & 0xFF);
+            target[offset + i] = (byte) (sum >= PRIME ? sum - PRIME : sum);
+        }
+    }
+
+    @Override
+    public void Combine(byte shareBytes[][], int weights[], int prime, byte out[], int from, int to) {
+        if (prime == BinaryField.ORDER) {
+            CombineBinary(shareBytes, weights, out, from, to);
+        } else {
+            CombinePrime(shareBytes, weights, out, from, to);
+        }
+    }
+
+    /**
+     * Multiply-accumulate in int lanes followed by a reduction that folds 2^8 = 5
+     * mod 251 three times, which brings any sum of k < 256 terms below 2q
+     *
+     * @param shareBytes
+     * @param weights
+     * @param out
+     * @param from
+     * @param to
+     */
+    private void CombinePrime(byte shareBytes[][], int weights[], byte out[], int from, int to) {
+        int shares = weights.length;
+        int end = from + INTS.loopBound(to - from);
+
+        for (int i = from; i < end; i += INTS.length()) {
+            IntVector sum = IntVector.zero(INTS);
+            for (int s = 0; s < shares; s++) {
+                IntVector share = (IntVector) ByteVector.fromArray(INT_BYTES, shareBytes[s], i)
+                        .convertShape(VectorOperators.B2I, INTS, 0);
+                sum = sum.add(share.and(0xFF).mul(weights[s]));
+            }
+            for (int fold = 0; fold < 3; fold++) {
+                sum = sum.lanewise(VectorOperators.LSHR, 8).mul(FOLD).add(sum.and(0xFF));
+            }
+            sum = sum.lanewise(VectorOperators.SUB, PRIME, sum.compare(VectorOperators.GE, PRIME));
+            sum.convertShape(VectorOperators.I2B, INT_BYTES, 0).reinterpretAsBytes().intoArray(out, i);
+        }
+
+        Reconstructor.Combine(shareBytes, weights, PRIME, out, end, to);
+    }
+
+    /**
+     * Products by a weight split into products of the low and high nibble, each
+     * looked up from a 16 entry table held in a register
+     *
+     * @param shareBytes
+     * @param weights
+     * @param out
+     * @param from
+     * @param to
+     */
+    private void CombineBinary(byte shareBytes[][], int weights[], byte out[], int from, int to) {
+        int shares = weights.length;
+        ByteVector lowTables[] = new ByteVector[shares], highTables[] = new ByteVector[shares];
+        byte low[] = new byte[BYTES.length()], high[] = new byte[BYTES.length()];
+        for (int s = 0; s < shares; s++) {
+            for (int lane = 0; lane < low.length; lane++) {
+                low[lane] = (byte) BinaryField.Mul(weights[s], lane & 0x0F);
+                high[lane] = (byte) BinaryField.Mul(weights[s], (lane & 0x0F) << 4);
+            }
+            lowTables[s] = ByteVector.fromArray(BYTES, low, 0);
+            highTables[s] = ByteVector.fromArray(BYTES, high, 0);
+        }
+
+        int end = from + BYTES.loopBound(to - from);
+        for (int i = from; i < end; i += BYTES.length()) {
+            ByteVector sum = ByteVector.zero(BYTES);
+            for (int s = 0; s < shares; s++) {
+                ByteVector share = ByteVector.fromArray(BYTES, shareBytes[s], i);
+                sum = sum.lanewise(VectorOperators.XOR, share.and((byte) 0x0F).selectFrom(lowTables[s]))
+                        .lanewise(VectorOperators.XOR, share.lanewise(VectorOperators.LSHR, 4)
+                                .and((byte) 0x0F).selectFrom(highTables[s]));
+            }
+            sum.intoArray(out, i);
+        }
+
+        Reconstructor.Combine(shareBytes, weights, BinaryField.ORDER, out, end, to);
+    }
+}